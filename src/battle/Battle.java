@@ -1,72 +1,293 @@
 package battle;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+import engine.RandomService;
 import entities.Pokemon;
+import entities.Stat;
+
+/**
+ * Motore di una battaglia fra due Pokémon.
+ * <p>
+ * Non produce testo: ogni azione scrive eventi tipizzati nel {@link BattleLog}, che l'interfaccia
+ * legge e trasforma in messaggi con {@link BattleText}. Così lo stesso motore gira nel simulatore
+ * e nella ricerca dell'IA senza allocare stringhe a ogni turno. Le regole del turno (mosse, danni,
+ * stati) sono in {@link MoveEngine}, condivise con le simulazioni dell'IA.
+ * <p>
+ * Contro un allenatore l'avversario ha una squadra: quando un suo Pokémon è esausto entra il
+ * primo ancora in forze, e con una {@link BattleAI} può anche decidere di cambiare. La ricerca
+ * dell'IA parte all'inizio di ogni turno, mentre il giocatore sceglie, e se ne legge il risultato
+ * in {@link #performTurn(int)} senza aspettare. Un Pokémon selvatico usa una mossa a caso.
+ * <p>
+ * Le fasi valgono per il Pokémon in campo e si azzerano quando l'avversario cambia Pokémon; lo stato
+ * (veleno, paralisi...) resta invece al singolo membro della squadra e lo segue dentro e fuori dal campo.
+ */
+public final class Battle implements Combat {
 
-public final class Battle {
+    private static final double CAPTURE_CHANCE = 0.6;
+    private static final int PLAYER = BattleSnapshot.PLAYER;
+    private static final int ENEMY = BattleSnapshot.ENEMY;
 
     private final Pokemon playerPokemon;
-    private final Pokemon enemyPokemon;
+    private final List<Pokemon> enemyTeam;
+    private final RandomGenerator rng;
+    private final BattleLog log;
+    private Pokemon enemyPokemon;
+    private int enemyActive;
     private boolean battleOver;
 
+    // Fasi del Pokémon in campo per ogni lato
+    private final int[] stages = new int[2 * Stat.COUNT];
+    // Stato di ogni membro, indicizzato come in BattleSnapshot: lato * MAX_TEAM + membro
+    private final Status[] status = new Status[2 * BattleSnapshot.MAX_TEAM];
+    private final int[] statusTurns = new int[2 * BattleSnapshot.MAX_TEAM];
+
+    private BattleAI enemyAI;
+    private BattleAI.Search enemySearch;
+
     public Battle(Pokemon playerPokemon, Pokemon enemyPokemon) {
+        this(playerPokemon, enemyPokemon, RandomService.getInstance().get(RandomService.Stream.BATTLE));
+    }
+
+    // Con un generatore dedicato la battaglia è riproducibile e può girare su un altro thread
+    public Battle(Pokemon playerPokemon, Pokemon enemyPokemon, RandomGenerator rng) {
+        this(playerPokemon, enemyPokemon, rng, new BattleLog());
+    }
+
+    /**
+     * Come sopra, ma scrive gli eventi in un log esistente (il simulatore ne riusa uno per tutte le battaglie).
+     */
+    public Battle(Pokemon playerPokemon, Pokemon enemyPokemon, RandomGenerator rng, BattleLog log) {
+        this(playerPokemon, List.of(enemyPokemon), rng, log);
+    }
+
+    /**
+     * Battaglia contro una squadra (allenatore): entra in campo il primo Pokémon non esausto.
+     * I Pokémon che non conoscono nessuna mossa ricevono quelle di base della loro specie.
+     */
+    public Battle(Pokemon playerPokemon, List<Pokemon> enemyTeam, RandomGenerator rng, BattleLog log) {
+        if (enemyTeam.isEmpty() || enemyTeam.size() > BattleSnapshot.MAX_TEAM) {
+            throw new IllegalArgumentException("Squadra avversaria di " + enemyTeam.size() + " Pokémon");
+        }
         this.playerPokemon = playerPokemon;
-        this.enemyPokemon = enemyPokemon;
-        this.battleOver = false;
+        this.enemyTeam = List.copyOf(enemyTeam);
+        this.rng = rng;
+        this.log = log;
+        Arrays.fill(status, Status.NONE);
+
+        MoveTable moves = MoveTable.getInstance();
+        moves.assignDefaultMoves(playerPokemon);
+        for (Pokemon pokemon : this.enemyTeam) moves.assignDefaultMoves(pokemon);
+
+        int first = firstHealthyEnemy();
+        this.enemyActive = Math.max(0, first);
+        this.enemyPokemon = this.enemyTeam.get(enemyActive);
+        this.battleOver = playerPokemon.isFainted() || first < 0;
     }
 
-    public String playerAttack() {
-        if (battleOver) return "La battaglia è già finita.";
+    /**
+     * Affida le scelte dell'avversario all'IA; la prima ricerca parte subito.
+     */
+    public void setEnemyAI(BattleAI ai) {
+        cancelSearch();
+        this.enemyAI = ai;
+        startSearch();
+    }
 
-        int damage = playerPokemon.calculateDamage(enemyPokemon);
-        enemyPokemon.takeDamage(damage);
-        checkBattleOver();
+    public boolean isTrainerBattle() {
+        return enemyAI != null || enemyTeam.size() > 1;
+    }
+
+    /**
+     * Un turno in cui il giocatore usa la mossa nello slot indicato. L'avversario sceglie la sua
+     * (o un cambio) con l'IA o a caso; si muove prima chi ha la mossa con priorità più alta,
+     * poi il più veloce. Se l'avversario cambia Pokémon, il cambio avviene prima di tutto.
+     */
+    public void performTurn(int playerSlot) {
+        if (battleOver) return;
 
-        return formatAttackMessage(playerPokemon, enemyPokemon, damage);
+        int enemyAction = enemySearch != null ? enemySearch.bestAction() : randomMoveAction(enemyPokemon);
+        enemySearch = null;
+        int enemyMove = MoveTable.NO_MOVE;
+        if (!BattleAI.isMove(enemyAction) && canEnemySwitchTo(enemyAction)) {
+            switchEnemy(enemyAction); // Il cambio costa il turno all'avversario
+        } else {
+            enemyMove = moveInSlot(enemyPokemon, BattleAI.isMove(enemyAction) ? BattleAI.moveSlot(enemyAction) : 0);
+        }
+        MoveEngine.playTurn(this, moveInSlot(playerPokemon, playerSlot), enemyMove, rng);
+
+        if (enemyPokemon.isFainted()) {
+            int next = firstHealthyEnemy();
+            if (next >= 0) switchEnemy(next);
+        }
+        battleOver = playerPokemon.isFainted() || enemyPokemon.isFainted();
+        startSearch();
     }
 
-    public String enemyAttack() {
-        if (battleOver) return "La battaglia è già finita.";
+    /**
+     * Azione "mossa a caso fra quelle conosciute", come la sceglie un Pokémon selvatico.
+     */
+    public int randomMoveAction(Pokemon pokemon) {
+        return BattleAI.move(rng.nextInt(Math.max(1, pokemon.getMoveCount())));
+    }
 
-        int damage = enemyPokemon.calculateDamage(playerPokemon);
-        playerPokemon.takeDamage(damage);
-        checkBattleOver();
+    /**
+     * Lancia una Poké Ball al Pokémon avversario. In ogni caso la battaglia finisce.
+     */
+    public boolean attemptCapture() {
+        if (battleOver || isTrainerBattle()) return false;
 
-        return formatAttackMessage(enemyPokemon, playerPokemon, damage);
+        boolean caught = rng.nextDouble() < CAPTURE_CHANCE;
+        event(BattleEvent.CAPTURE, ENEMY, caught ? 1 : 0);
+        battleOver = true;
+        cancelSearch();
+        return caught;
     }
 
-    public String performTurn() {
-        if (battleOver) return "La battaglia è finita.";
+    /**
+     * Fuga dalla battaglia. Da un allenatore non si fugge, come non si cattura: resta solo l'evento
+     * che lo dice e la battaglia continua.
+     */
+    public void flee() {
+        if (battleOver) return;
+        if (isTrainerBattle()) {
+            event(BattleEvent.NO_ESCAPE, PLAYER, 0);
+            return;
+        }
 
-        StringBuilder log = new StringBuilder();
-        boolean playerFirst = playerPokemon.getSpeed() >= enemyPokemon.getSpeed();
+        event(BattleEvent.FLEE, PLAYER, 0);
+        battleOver = true;
+        cancelSearch();
+    }
 
-        if (playerFirst) {
-            log.append(playerAttack()).append("\n");
-            if (!enemyPokemon.isFainted()) {
-                log.append(enemyAttack()).append("\n");
-            }
-        } else {
-            log.append(enemyAttack()).append("\n");
-            if (!playerPokemon.isFainted()) {
-                log.append(playerAttack()).append("\n");
-            }
+    private static int moveInSlot(Pokemon pokemon, int slot) {
+        int move = slot >= 0 && slot < Pokemon.MOVE_SLOTS ? pokemon.getMove(slot) : MoveTable.NO_MOVE;
+        if (move == MoveTable.NO_MOVE) move = pokemon.getMove(0);
+        return MoveTable.getInstance().isValid(move) ? move : MoveTable.FALLBACK_MOVE;
+    }
+
+    private boolean canEnemySwitchTo(int index) {
+        return index != enemyActive && index >= 0 && index < enemyTeam.size() && !enemyTeam.get(index).isFainted();
+    }
+
+    private void switchEnemy(int index) {
+        enemyActive = index;
+        enemyPokemon = enemyTeam.get(index);
+        Arrays.fill(stages, ENEMY * Stat.COUNT, (ENEMY + 1) * Stat.COUNT, 0); // Lo stato resta al membro
+        event(BattleEvent.SWITCH, ENEMY, index);
+    }
+
+    private int firstHealthyEnemy() {
+        for (int i = 0; i < enemyTeam.size(); i++) {
+            if (!enemyTeam.get(i).isFainted()) return i;
         }
+        return -1;
+    }
 
-        return log.toString().trim();
+    private void startSearch() {
+        if (enemyAI != null && !battleOver) {
+            enemySearch = enemyAI.think(BattleSnapshot.of(this, enemyTeam, enemyActive));
+        }
     }
 
-    private void checkBattleOver() {
-        battleOver = playerPokemon.isFainted() || enemyPokemon.isFainted();
+    private void cancelSearch() {
+        if (enemySearch != null) {
+            enemySearch.cancel();
+            enemySearch = null;
+        }
     }
 
-    private String formatAttackMessage(Pokemon attacker, Pokemon defender, int damage) {
-        return attacker.getName() + " infligge " + damage + " danni a " + defender.getName() + "!";
+    private Pokemon pokemon(int side) {
+        return side == PLAYER ? playerPokemon : enemyPokemon;
+    }
+
+    // Indice negli array degli stati del membro in campo
+    private int slot(int side) {
+        return side == PLAYER ? 0 : ENEMY * BattleSnapshot.MAX_TEAM + enemyActive;
+    }
+
+    // Stato di un membro qualsiasi della squadra, per la copia in BattleSnapshot
+    Status getStatus(int side, int member) {
+        return status[side * BattleSnapshot.MAX_TEAM + member];
+    }
+
+    int getStatusTurns(int side, int member) {
+        return statusTurns[side * BattleSnapshot.MAX_TEAM + member];
+    }
+
+    // --- Combat: la vista usata da MoveEngine ---
+
+    @Override
+    public int getLevel(int side) {
+        return pokemon(side).getLevel();
+    }
+
+    @Override
+    public int getStat(int side, Stat stat) {
+        return pokemon(side).getStat(stat);
+    }
+
+    @Override
+    public int getHp(int side) {
+        return pokemon(side).getCurrentHp();
+    }
+
+    @Override
+    public int getMaxHp(int side) {
+        return pokemon(side).getMaxHp();
+    }
+
+    @Override
+    public int getTypes(int side) {
+        return DamageModel.typePair(pokemon(side).getSpecies());
+    }
+
+    @Override
+    public int getStage(int side, Stat stat) {
+        return stages[side * Stat.COUNT + stat.ordinal()];
+    }
+
+    @Override
+    public void setStage(int side, Stat stat, int stage) {
+        stages[side * Stat.COUNT + stat.ordinal()] = stage;
+    }
+
+    @Override
+    public Status getStatus(int side) {
+        return status[slot(side)];
+    }
+
+    @Override
+    public void setStatus(int side, Status newStatus, int turns) {
+        status[slot(side)] = newStatus;
+        statusTurns[slot(side)] = turns;
+    }
+
+    @Override
+    public int getStatusTurns(int side) {
+        return statusTurns[slot(side)];
+    }
+
+    @Override
+    public void damage(int side, int amount) {
+        pokemon(side).takeDamage(amount);
+    }
+
+    @Override
+    public void event(BattleEvent type, int side, int value) {
+        log.add(type, side == PLAYER ? BattleLog.PLAYER_ACTOR : 1 + enemyActive, value);
     }
 
     public boolean isBattleOver() {
         return battleOver;
     }
 
+    public BattleLog getLog() {
+        return log;
+    }
+
     public Pokemon getPlayerPokemon() {
         return playerPokemon;
     }
@@ -74,4 +295,8 @@ public final class Battle {
     public Pokemon getEnemyPokemon() {
         return enemyPokemon;
     }
+
+    public List<Pokemon> getEnemyTeam() {
+        return enemyTeam;
+    }
 }
@@ -0,0 +1,260 @@
+package battle;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import engine.RandomService;
+
+/**
+ * IA degli allenatori avversari: sceglie quale mossa usare o con chi cambiare con una ricerca
+ * Monte Carlo sullo stato compatto della battaglia ({@link BattleSnapshot}).
+ * <p>
+ * Per ogni azione possibile si giocano molte partite fino alla fine con mosse casuali; ogni worker sceglie
+ * quale azione provare con UCB1 e somma i risultati in contatori condivisi (MCTS con la sola
+ * radice, parallelizzato sulla radice). La ricerca parte su un pool di thread in background
+ * appena inizia il turno, mentre il giocatore sceglie la sua mossa, e si ferma da sola allo
+ * scadere del tempo: {@link Search#bestAction()} non aspetta mai, quindi il loop di gioco non si blocca.
+ * Più tempo significa più partite simulate e scelte migliori: la difficoltà è il budget di tempo.
+ * <p>
+ * Le mosse sono ordinate per danno atteso ({@link DamageModel#expectedDamage}, pesato per precisione e
+ * numero di colpi): UCB1 prova per prime le più forti e, se il budget finisce prima di simulare
+ * qualcosa o fra azioni con lo stesso risultato, vince la mossa che fa più danni.
+ */
+public final class BattleAI {
+
+    // Un'azione è l'indice del membro con cui cambiare (>= 0) oppure una mossa, codificata come -1 - slot
+
+    private static final int MAX_TURNS = 200; // Partite più lunghe contano come pareggio
+    private static final int MAX_SCORE = 2 * MAX_TURNS;
+    private static final int PUBLISH_EVERY = 32; // Partite fra un aggiornamento e l'altro dei contatori condivisi
+    private static final double EXPLORATION = Math.sqrt(2);
+
+    public enum Difficulty {
+        EASY(10),
+        NORMAL(50),
+        HARD(250);
+
+        public final long budgetMillis;
+
+        Difficulty(long budgetMillis) {
+            this.budgetMillis = budgetMillis;
+        }
+    }
+
+    private static ExecutorService workers;
+    private static int workerCount;
+
+    private final long budgetNanos;
+
+    public static int move(int slot) {
+        return -1 - slot;
+    }
+
+    public static boolean isMove(int action) {
+        return action < 0;
+    }
+
+    public static int moveSlot(int action) {
+        return -1 - action;
+    }
+
+    public BattleAI(Difficulty difficulty) {
+        this(difficulty.budgetMillis);
+    }
+
+    public BattleAI(long budgetMillis) {
+        this.budgetNanos = budgetMillis * 1_000_000L;
+    }
+
+    // Un solo pool per tutte le IA, con un thread per core (lasciandone uno al loop di gioco)
+    private static synchronized ExecutorService workers() {
+        if (workers == null) {
+            workerCount = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+            AtomicInteger threadId = new AtomicInteger();
+            workers = Executors.newFixedThreadPool(workerCount, r -> {
+                Thread t = new Thread(r, "BattleAI-" + threadId.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return workers;
+    }
+
+    /**
+     * Avvia la ricerca per l'avversario a partire dallo stato indicato (che non viene modificato).
+     */
+    public Search think(BattleSnapshot root) {
+        Search search = new Search(root, System.nanoTime() + budgetNanos);
+        if (search.actions.length > 1) {
+            ExecutorService pool = workers();
+            for (int i = 0; i < workerCount; i++) {
+                SplittableRandom rng = RandomService.getInstance().split(RandomService.Stream.AI);
+                pool.execute(() -> search.work(rng));
+            }
+        }
+        return search;
+    }
+
+    /**
+     * Una ricerca in corso. I worker si fermano alla scadenza o con {@link #cancel()}.
+     */
+    public static final class Search {
+        private final BattleSnapshot root;
+        private final int[] actions; // Mosse del Pokémon in campo e cambi possibili
+        private final long deadline;
+        private final AtomicLongArray visits;
+        private final AtomicLongArray score; // Somma dei punteggi delle partite, vedi playout
+        private volatile boolean cancelled;
+
+        Search(BattleSnapshot root, long deadline) {
+            this.root = root;
+            this.deadline = deadline;
+            int moveCount = root.getMoveCount(BattleSnapshot.ENEMY);
+            int count = moveCount;
+            for (int m = 0; m < root.getTeamSize(BattleSnapshot.ENEMY); m++) {
+                if (root.canSwitchTo(BattleSnapshot.ENEMY, m)) count++;
+            }
+            actions = new int[count];
+            int k = 0;
+            for (int slot : movesByExpectedDamage(root, moveCount)) actions[k++] = move(slot);
+            for (int m = 0; m < root.getTeamSize(BattleSnapshot.ENEMY); m++) {
+                if (root.canSwitchTo(BattleSnapshot.ENEMY, m)) actions[k++] = m;
+            }
+            visits = new AtomicLongArray(count);
+            score = new AtomicLongArray(count);
+        }
+
+        // Slot delle mosse dell'avversario, dal danno atteso sul Pokémon del giocatore più alto al più basso
+        private static int[] movesByExpectedDamage(BattleSnapshot root, int moveCount) {
+            MoveTable moves = MoveTable.getInstance();
+            long[] hits = new long[moveCount];
+            float[] expected = new float[moveCount];
+            for (int slot = 0; slot < moveCount; slot++) {
+                int move = root.getMove(BattleSnapshot.ENEMY, slot);
+                hits[slot] = moves.getCategory(move) == MoveTable.Category.STATUS
+                        ? 0L // Potenza 0: nessun danno
+                        : MoveEngine.hit(root, BattleSnapshot.ENEMY, BattleSnapshot.PLAYER, move);
+            }
+            DamageModel.expectedDamage(hits, moveCount, expected);
+
+            Integer[] order = new Integer[moveCount];
+            float[] value = new float[moveCount];
+            for (int slot = 0; slot < moveCount; slot++) {
+                int move = root.getMove(BattleSnapshot.ENEMY, slot);
+                int accuracy = moves.getAccuracy(move); // 0: non manca mai
+                value[slot] = expected[slot] * (moves.getMinHits(move) + moves.getMaxHits(move)) / 2f
+                        * (accuracy > 0 ? accuracy / 100f : 1f);
+                order[slot] = slot;
+            }
+            Arrays.sort(order, (a, b) -> Float.compare(value[b], value[a])); // Stabile: a parità resta l'ordine degli slot
+
+            int[] slots = new int[moveCount];
+            for (int i = 0; i < moveCount; i++) slots[i] = order[i];
+            return slots;
+        }
+
+        private void work(SplittableRandom rng) {
+            int n = actions.length;
+            long[] localVisits = new long[n];
+            long[] localScore = new long[n];
+            long[] pendingVisits = new long[n];
+            long[] pendingScore = new long[n];
+            BattleSnapshot state = new BattleSnapshot();
+            long played = 0;
+
+            while (!cancelled && System.nanoTime() < deadline) {
+                int a = select(localVisits, localScore, played);
+                state.copyFrom(root);
+                int result = playout(state, actions[a], rng);
+                localVisits[a]++;
+                localScore[a] += result;
+                pendingVisits[a]++;
+                pendingScore[a] += result;
+                if (++played % PUBLISH_EVERY == 0) publish(pendingVisits, pendingScore);
+            }
+            publish(pendingVisits, pendingScore);
+        }
+
+        // UCB1: prima si prova ogni azione una volta, poi si bilancia risultato medio ed esplorazione
+        private static int select(long[] visits, long[] score, long total) {
+            int best = 0;
+            double bestValue = -1;
+            double logTotal = Math.log(total + 1);
+            for (int a = 0; a < visits.length; a++) {
+                if (visits[a] == 0) return a;
+                double value = score[a] / (double) (MAX_SCORE * visits[a]) + EXPLORATION * Math.sqrt(logTotal / visits[a]);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = a;
+                }
+            }
+            return best;
+        }
+
+        // Gioca fino alla fine: dopo la prima azione dell'avversario entrambi usano mosse a caso.
+        // Punteggio da 0 a MAX_SCORE: una vittoria vale più di MAX_TURNS, tanto più quanto è rapida,
+        // una sconfitta meno, tanto meno quanto è rapida; così fra azioni che vincono sempre si
+        // sceglie quella che chiude prima (e fra quelle che perdono, quella che resiste di più)
+        private static int playout(BattleSnapshot state, int firstAction, SplittableRandom rng) {
+            state.playTurn(randomMove(state, BattleSnapshot.PLAYER, rng), firstAction, rng);
+            int turn = 1;
+            for (; turn < MAX_TURNS && state.getLoser() < 0; turn++) {
+                state.playTurn(randomMove(state, BattleSnapshot.PLAYER, rng), randomMove(state, BattleSnapshot.ENEMY, rng), rng);
+            }
+            int loser = state.getLoser();
+            if (loser < 0) return MAX_TURNS;
+            return loser == BattleSnapshot.PLAYER ? MAX_SCORE - turn : turn - 1;
+        }
+
+        private static int randomMove(BattleSnapshot state, int side, SplittableRandom rng) {
+            return move(rng.nextInt(state.getMoveCount(side)));
+        }
+
+        private void publish(long[] pendingVisits, long[] pendingScore) {
+            for (int a = 0; a < actions.length; a++) {
+                if (pendingVisits[a] == 0) continue;
+                visits.addAndGet(a, pendingVisits[a]);
+                score.addAndGet(a, pendingScore[a]);
+                pendingVisits[a] = 0;
+                pendingScore[a] = 0;
+            }
+        }
+
+        /**
+         * Ferma la ricerca e restituisce l'azione con il risultato medio migliore trovata finora
+         * (la mossa con il danno atteso più alto se non c'è stato il tempo di simulare nulla). Non blocca.
+         */
+        public int bestAction() {
+            cancel();
+            int best = 0;
+            double bestMean = -1;
+            for (int a = 0; a < actions.length; a++) {
+                long v = visits.get(a);
+                if (v == 0) continue;
+                double mean = score.get(a) / (double) (MAX_SCORE * v);
+                if (mean > bestMean) {
+                    bestMean = mean;
+                    best = a;
+                }
+            }
+            return actions[best];
+        }
+
+        /**
+         * Partite simulate finora (quelle pubblicate dai worker).
+         */
+        public long getPlayouts() {
+            long total = 0;
+            for (int a = 0; a < actions.length; a++) total += visits.get(a);
+            return total;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package battle;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CompletableFuture;
+
+import utils.SpriteLoader;
+
+/**
+ * Immagini della scena di battaglia, caricate una sola volta e condivise da tutte le battaglie.
+ * Vengono già convertite nel formato dello schermo, così il primo frame di un incontro
+ * non deve aspettare la decodifica dei PNG.
+ */
+public final class BattleAssets {
+
+    private static final int TRAINER_THROW_FRAMES = 4;
+
+    private static volatile BattleAssets instance;
+
+    private final BufferedImage background;
+    private final BufferedImage[] trainerThrowSprites;
+    private final BufferedImage pokeballSprite;
+
+    private BattleAssets() {
+        background = loadOrNull("/assets/battle_background.png");
+        trainerThrowSprites = new BufferedImage[TRAINER_THROW_FRAMES];
+        for (int i = 0; i < TRAINER_THROW_FRAMES; i++) {
+            trainerThrowSprites[i] = loadOrNull("/assets/trainer_throw_" + i + ".png");
+        }
+        pokeballSprite = loadOrNull("/assets/ground_pokeball.png");
+    }
+
+    public static BattleAssets getInstance() {
+        if (instance == null) {
+            synchronized (BattleAssets.class) {
+                if (instance == null) {
+                    instance = new BattleAssets();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Avvia il caricamento in background, così anche la prima battaglia parte senza attese.
+     */
+    public static void preload() {
+        CompletableFuture.runAsync(BattleAssets::getInstance);
+    }
+
+    private static BufferedImage loadOrNull(String path) {
+        try {
+            return SpriteLoader.loadCompatible(path);
+        } catch (RuntimeException e) {
+            System.err.println("Errore nel caricare le immagini della battaglia: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public BufferedImage getBackground() {
+        return background;
+    }
+
+    public BufferedImage[] getTrainerThrowSprites() {
+        return trainerThrowSprites;
+    }
+
+    public BufferedImage getPokeballSprite() {
+        return pokeballSprite;
+    }
+}
@@ -0,0 +1,76 @@
+package battle;
+
+import entities.Stat;
+
+/**
+ * Tipi di evento prodotti dal motore di battaglia e salvati nel {@link BattleLog}.
+ * Ogni evento ha anche il Pokémon a cui si riferisce (del giocatore o della squadra avversaria)
+ * e un valore intero il cui significato dipende dal tipo.
+ */
+public enum BattleEvent {
+    /** Il Pokémon usa una mossa; valore: id della mossa. */
+    ATTACK(false),
+    /** La mossa del Pokémon fallisce il bersaglio; valore: id della mossa. */
+    MISS(false),
+    /** Il Pokémon perde PS (per un colpo o per uno stato); valore: danni. */
+    DAMAGE(false),
+    /** Efficacia del colpo subito, se non è normale; valore: moltiplicatore in 4096esimi (0 = nessun effetto). */
+    EFFECTIVENESS(false),
+    /** Numero di colpi andati a segno di una mossa a colpi multipli; valore: colpi. */
+    HITS(false),
+    /** La mossa non ha effetto sul Pokémon. */
+    FAIL(false),
+    /** Il Pokémon subisce un problema di stato; valore: ordinale di {@link Status}. */
+    STATUS(false),
+    /** Il Pokémon guarisce da uno stato; valore: ordinale di {@link Status}. */
+    CURE(false),
+    /** Il Pokémon non si muove a causa dello stato; valore: ordinale di {@link Status}. */
+    CANT_MOVE(false),
+    /** Il Pokémon soffre per lo stato a fine turno (segue un DAMAGE); valore: ordinale di {@link Status}. */
+    RESIDUAL(false),
+    /** Cambia la fase di una statistica; valore: vedi {@link #packStageChange}. */
+    STAT_CHANGE(false),
+    /** L'allenatore avversario manda in campo un altro Pokémon; valore: indice nella squadra. */
+    SWITCH(false),
+    /** Il Pokémon è esausto (contro un allenatore, solo l'ultimo chiude la battaglia). */
+    FAINT(true),
+    /** Lancio della Poké Ball sul Pokémon avversario; valore: 1 se catturato, 0 se è fuggito. */
+    CAPTURE(true),
+    /** Il giocatore prova a fuggire da un allenatore: la battaglia continua. */
+    NO_ESCAPE(false),
+    /** Il giocatore fugge dalla battaglia. */
+    FLEE(true);
+
+    private final boolean endsBattle;
+
+    BattleEvent(boolean endsBattle) {
+        this.endsBattle = endsBattle;
+    }
+
+    /**
+     * true se l'evento può chiudere la battaglia (il suo testo diventa il messaggio finale).
+     */
+    public boolean endsBattle() {
+        return endsBattle;
+    }
+
+    /**
+     * Valore di STAT_CHANGE: statistica, variazione applicata e variazione richiesta (diverse
+     * quando la fase è già al limite), 4 bit ciascuna.
+     */
+    public static int packStageChange(Stat stat, int applied, int requested) {
+        return stat.ordinal() | (applied + 8) << 4 | (requested + 8) << 8;
+    }
+
+    public static Stat stageStat(int value) {
+        return Stat.values()[value & 0xF];
+    }
+
+    public static int stageApplied(int value) {
+        return ((value >>> 4) & 0xF) - 8;
+    }
+
+    public static int stageRequested(int value) {
+        return ((value >>> 8) & 0xF) - 8;
+    }
+}
@@ -0,0 +1,98 @@
+package battle;
+
+/**
+ * Buffer circolare degli eventi di battaglia, riusabile da una battaglia all'altra.
+ * <p>
+ * Gli eventi sono salvati in array paralleli e aggiungerne uno non alloca nulla, quindi il
+ * simulatore e la ricerca dell'IA possono usare lo stesso motore dell'interfaccia senza costruire
+ * stringhe. Ogni evento ha un numero di sequenza crescente: chi legge (interfaccia, log, replay)
+ * tiene il proprio cursore e legge gli eventi da lì fino a {@link #getEnd()}. Quando il buffer è
+ * pieno gli eventi più vecchi vengono sovrascritti; {@link #getStart()} è il primo ancora leggibile.
+ * <p>
+ * Il testo per il giocatore si ottiene solo quando serve, con {@link BattleText}.
+ */
+public final class BattleLog {
+
+    public static final int DEFAULT_CAPACITY = 64;
+    public static final int PLAYER_ACTOR = 0;
+
+    private final BattleEvent[] types;
+    private final byte[] actors; // PLAYER_ACTOR oppure 1 + indice nella squadra avversaria
+    private final int[] values;
+    private final int mask;
+    private long end = 0;
+
+    public BattleLog() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity numero minimo di eventi conservati (arrotondato alla potenza di due successiva)
+     */
+    public BattleLog(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+        types = new BattleEvent[size];
+        actors = new byte[size];
+        values = new int[size];
+        mask = size - 1;
+    }
+
+    /**
+     * @param actor {@link #PLAYER_ACTOR} oppure 1 + indice del Pokémon nella squadra avversaria
+     */
+    void add(BattleEvent type, int actor, int value) {
+        int i = (int) end & mask;
+        types[i] = type;
+        actors[i] = (byte) actor;
+        values[i] = value;
+        end++;
+    }
+
+    /**
+     * Numero di sequenza del prossimo evento (tutti quelli già scritti hanno un numero minore).
+     */
+    public long getEnd() {
+        return end;
+    }
+
+    /**
+     * Numero di sequenza dell'evento più vecchio ancora nel buffer.
+     */
+    public long getStart() {
+        return Math.max(0, end - types.length);
+    }
+
+    public BattleEvent getType(long sequence) {
+        return types[index(sequence)];
+    }
+
+    /**
+     * true se l'evento riguarda il Pokémon del giocatore.
+     */
+    public boolean isPlayer(long sequence) {
+        return actors[index(sequence)] == PLAYER_ACTOR;
+    }
+
+    /**
+     * Indice nella squadra avversaria del Pokémon a cui si riferisce l'evento (-1 per il giocatore):
+     * resta corretto anche se nel frattempo l'avversario ha cambiato Pokémon.
+     */
+    public int getEnemyIndex(long sequence) {
+        return actors[index(sequence)] - 1;
+    }
+
+    public int getValue(long sequence) {
+        return values[index(sequence)];
+    }
+
+    public void clear() {
+        end = 0;
+    }
+
+    private int index(long sequence) {
+        if (sequence < getStart() || sequence >= end) {
+            throw new IndexOutOfBoundsException("Evento non disponibile: " + sequence);
+        }
+        return (int) sequence & mask;
+    }
+}
@@ -0,0 +1,274 @@
+package battle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import entities.Pokemon;
+import entities.Species;
+import entities.SpeciesRegistry;
+
+/**
+ * Simulatore Monte Carlo delle battaglie, senza interfaccia grafica, per il bilanciamento.
+ * <p>
+ * Per ogni coppia (specie, livello) contro (specie, livello) gioca molte battaglie con IV casuali
+ * e riporta percentuale di vittorie, turni medi e distribuzione dei danni per colpo. Ogni Pokémon
+ * conosce le mosse di base della sua specie e ne usa una a caso per turno.
+ * Le battaglie sono divise in blocchi eseguiti in parallelo su tutti i core; ogni blocco ha un
+ * generatore ricavato dal seme, dalla coppia e dal numero del blocco, quindi con lo stesso seme
+ * i risultati sono identici qualunque sia il numero di thread.
+ * <p>
+ * Uso: {@code java battle.BattleSimulator [--battles N] [--levels 5,10,50] [--seed S] [--species file] [--moves file]}
+ */
+public final class BattleSimulator {
+
+    private static final int BATTLES_PER_JOB = 2000;
+    private static final int MAX_TURNS = 500; // Oltre si considera pareggio
+    private static final int MAX_DAMAGE_BIN = 1023; // I danni più alti finiscono nell'ultima casella
+
+    /**
+     * Un contendente: specie e livello.
+     */
+    public static final class Entry {
+        public final Species species;
+        public final int level;
+
+        public Entry(Species species, int level) {
+            this.species = species;
+            this.level = level;
+        }
+
+        @Override
+        public String toString() {
+            return species.name + " L" + level;
+        }
+    }
+
+    /**
+     * Risultati accumulati per una coppia (riga contro colonna).
+     */
+    public static final class PairResult {
+        long battles;
+        long wins;
+        long draws;
+        long turns;
+        // Istogrammi dei danni per colpo: inflitti dalla riga e dalla colonna
+        final long[] damageDealt = new long[MAX_DAMAGE_BIN + 1];
+        final long[] damageTaken = new long[MAX_DAMAGE_BIN + 1];
+
+        synchronized void merge(PairResult other) {
+            battles += other.battles;
+            wins += other.wins;
+            draws += other.draws;
+            turns += other.turns;
+            for (int i = 0; i <= MAX_DAMAGE_BIN; i++) {
+                damageDealt[i] += other.damageDealt[i];
+                damageTaken[i] += other.damageTaken[i];
+            }
+        }
+
+        public double winRate() {
+            return battles == 0 ? 0 : (double) wins / battles;
+        }
+
+        public double averageTurns() {
+            return battles == 0 ? 0 : (double) turns / battles;
+        }
+
+        public long[] getDamageDealt() {
+            return damageDealt.clone();
+        }
+
+        public long[] getDamageTaken() {
+            return damageTaken.clone();
+        }
+    }
+
+    private final List<Entry> entries;
+    private final int battlesPerPair;
+    private final long seed;
+
+    public BattleSimulator(List<Entry> entries, int battlesPerPair, long seed) {
+        this.entries = List.copyOf(entries);
+        this.battlesPerPair = battlesPerPair;
+        this.seed = seed;
+    }
+
+    public static void main(String[] args) {
+        int battles = 10_000;
+        int[] levels = {5, 10, 50};
+        long seed = System.nanoTime();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--battles" -> battles = Integer.parseInt(args[i + 1]);
+                case "--levels" -> levels = parseLevels(args[i + 1]);
+                case "--seed" -> seed = Long.parseLong(args[i + 1]);
+                case "--species" -> System.setProperty("pokemon.speciesFile", args[i + 1]);
+                case "--moves" -> System.setProperty("pokemon.movesFile", args[i + 1]);
+                default -> {
+                    System.err.println("Opzione sconosciuta: " + args[i]);
+                    System.err.println("Uso: java battle.BattleSimulator [--battles N] [--levels 5,10,50] [--seed S] [--species file] [--moves file]");
+                    System.exit(1);
+                }
+            }
+        }
+
+        List<Entry> entries = new ArrayList<>();
+        for (Species species : SpeciesRegistry.getInstance().getAll()) {
+            for (int level : levels) {
+                entries.add(new Entry(species, level));
+            }
+        }
+        BattleSimulator simulator = new BattleSimulator(entries, battles, seed);
+
+        long start = System.nanoTime();
+        PairResult[][] results = simulator.run();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long total = (long) entries.size() * entries.size() * battles;
+        System.out.printf(Locale.ROOT, "# seme %d, %d battaglie per coppia, %d battaglie in %.2f s su %d core%n",
+                seed, battles, total, seconds, Runtime.getRuntime().availableProcessors());
+        simulator.print(results);
+    }
+
+    private static int[] parseLevels(String list) {
+        String[] parts = list.split(",");
+        int[] levels = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) levels[i] = Integer.parseInt(parts[i].trim());
+        return levels;
+    }
+
+    /**
+     * Esegue tutte le coppie; results[i][j] è la riga i contro la colonna j.
+     */
+    public PairResult[][] run() {
+        int n = entries.size();
+        PairResult[][] results = new PairResult[n][n];
+        for (PairResult[] row : results) {
+            for (int j = 0; j < n; j++) row[j] = new PairResult();
+        }
+        int jobsPerPair = (battlesPerPair + BATTLES_PER_JOB - 1) / BATTLES_PER_JOB;
+        IntStream.range(0, n * n * jobsPerPair).parallel().forEach(job -> {
+            int pair = job / jobsPerPair;
+            int block = job % jobsPerPair;
+            int count = Math.min(BATTLES_PER_JOB, battlesPerPair - block * BATTLES_PER_JOB);
+            PairResult partial = runBlock(entries.get(pair / n), entries.get(pair % n), count,
+                    new SplittableRandom(mix(seed, pair, block)));
+            results[pair / n][pair % n].merge(partial);
+        });
+        return results;
+    }
+
+    private static PairResult runBlock(Entry a, Entry b, int count, SplittableRandom rng) {
+        PairResult result = new PairResult();
+        BattleLog log = new BattleLog();
+        long cursor = 0;
+
+        for (int i = 0; i < count; i++) {
+            Pokemon first = new Pokemon(a.species, a.level, Pokemon.randomIvs(rng), 0L);
+            Pokemon second = new Pokemon(b.species, b.level, Pokemon.randomIvs(rng), 0L);
+            Battle battle = new Battle(first, second, rng, log);
+            int turns = 0;
+            while (!battle.isBattleOver() && turns < MAX_TURNS) {
+                battle.performTurn(BattleAI.moveSlot(battle.randomMoveAction(first)));
+                turns++;
+                // Un turno scrive meno di 32 eventi, quindi il buffer non perde nulla fra una lettura e l'altra
+                for (; cursor < log.getEnd(); cursor++) {
+                    // Conta solo i colpi: i danni da scottatura o veleno seguono un evento RESIDUAL
+                    boolean residual = cursor > log.getStart() && log.getType(cursor - 1) == BattleEvent.RESIDUAL;
+                    if (log.getType(cursor) == BattleEvent.DAMAGE && !residual) {
+                        // Danno subito dalla colonna = inflitto dalla riga
+                        long[] histogram = log.isPlayer(cursor) ? result.damageTaken : result.damageDealt;
+                        histogram[Math.min(log.getValue(cursor), MAX_DAMAGE_BIN)]++;
+                    }
+                }
+            }
+            result.battles++;
+            result.turns += turns;
+            // Pareggio anche se cadono entrambi nello stesso turno (un KO seguito dal veleno o dalla
+            // scottatura di chi l'ha inflitto): così riga-colonna e colonna-riga restano complementari
+            if (!battle.isBattleOver() || first.isFainted() && second.isFainted()) {
+                result.draws++;
+            } else if (second.isFainted()) {
+                result.wins++;
+            }
+        }
+        return result;
+    }
+
+    // Seme di un blocco: dipende solo da seme, coppia e blocco (mescolato come in SplitMix64)
+    private static long mix(long seed, int pair, int block) {
+        long z = seed + 0x9E3779B97F4A7C15L * (((long) pair << 32) | block) + 1;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Stampa le matrici in CSV: vittorie e turni medi, poi i danni per colpo di ogni coppia.
+     */
+    public void print(PairResult[][] results) {
+        int n = entries.size();
+        StringBuilder out = new StringBuilder();
+
+        out.append("\n# Percentuale di vittorie (riga contro colonna)\n");
+        appendHeader(out);
+        for (int i = 0; i < n; i++) {
+            out.append(entries.get(i));
+            for (int j = 0; j < n; j++) {
+                out.append(String.format(Locale.ROOT, ",%.3f", results[i][j].winRate()));
+            }
+            out.append('\n');
+        }
+
+        out.append("\n# Turni medi\n");
+        appendHeader(out);
+        for (int i = 0; i < n; i++) {
+            out.append(entries.get(i));
+            for (int j = 0; j < n; j++) {
+                out.append(String.format(Locale.ROOT, ",%.2f", results[i][j].averageTurns()));
+            }
+            out.append('\n');
+        }
+
+        out.append("\n# Danni per colpo inflitti dalla riga alla colonna\n");
+        out.append("attaccante,difensore,colpi,media,min,p10,mediana,p90,max\n");
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                long[] histogram = results[i][j].damageDealt;
+                long hits = 0;
+                double sum = 0;
+                for (int d = 0; d <= MAX_DAMAGE_BIN; d++) {
+                    hits += histogram[d];
+                    sum += (double) d * histogram[d];
+                }
+                out.append(entries.get(i)).append(',').append(entries.get(j)).append(',').append(hits);
+                out.append(String.format(Locale.ROOT, ",%.2f", hits == 0 ? 0 : sum / hits));
+                out.append(',').append(percentile(histogram, hits, 0));
+                out.append(',').append(percentile(histogram, hits, 0.10));
+                out.append(',').append(percentile(histogram, hits, 0.50));
+                out.append(',').append(percentile(histogram, hits, 0.90));
+                out.append(',').append(percentile(histogram, hits, 1.0));
+                out.append('\n');
+            }
+        }
+        System.out.print(out);
+    }
+
+    private void appendHeader(StringBuilder out) {
+        for (Entry entry : entries) out.append(',').append(entry);
+        out.append('\n');
+    }
+
+    private static int percentile(long[] histogram, long hits, double fraction) {
+        if (hits == 0) return 0;
+        long target = Math.max(1, (long) Math.ceil(fraction * hits));
+        long seen = 0;
+        for (int d = 0; d <= MAX_DAMAGE_BIN; d++) {
+            seen += histogram[d];
+            if (seen >= target) return d;
+        }
+        return MAX_DAMAGE_BIN;
+    }
+}
@@ -0,0 +1,245 @@
+package battle;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+import entities.Pokemon;
+import entities.Stat;
+
+/**
+ * Stato compatto di una battaglia, usato dall'IA per simulare i turni futuri.
+ * <p>
+ * Contiene solo numeri (PS, livello, statistiche, tipi, mosse e stato di ogni membro delle due squadre,
+ * più le fasi dei Pokémon in campo) in array piatti indicizzati con {@code lato * MAX_TEAM + membro}.
+ * Copiarlo con {@link #copyFrom} non alloca nulla, quindi ogni simulazione riparte da una copia
+ * della radice senza creare garbage. I turni si giocano con {@link MoveEngine}, come in {@link Battle}.
+ */
+public final class BattleSnapshot implements Combat {
+
+    public static final int MAX_TEAM = 6;
+    public static final int PLAYER = 0;
+    public static final int ENEMY = 1;
+
+    private static final int SLOTS = 2 * MAX_TEAM;
+
+    private final int[] hp = new int[SLOTS];
+    private final int[] maxHp = new int[SLOTS];
+    private final int[] level = new int[SLOTS];
+    private final int[] stats = new int[SLOTS * Stat.COUNT];
+    private final int[] types = new int[SLOTS]; // Coppia di tipi, vedi DamageModel.typePair
+    private final int[] moves = new int[SLOTS * Pokemon.MOVE_SLOTS];
+    private final int[] moveCount = new int[SLOTS];
+    private final Status[] status = new Status[SLOTS]; // Resta al membro anche quando esce dal campo
+    private final int[] statusTurns = new int[SLOTS];
+    private final int[] teamSize = new int[2];
+    private final int[] active = new int[2];
+    // Fasi dei Pokémon in campo
+    private final int[] stages = new int[2 * Stat.COUNT];
+
+    BattleSnapshot() {
+        Arrays.fill(status, Status.NONE);
+    }
+
+    static BattleSnapshot of(Battle battle, List<Pokemon> enemyTeam, int enemyActive) {
+        BattleSnapshot snapshot = new BattleSnapshot();
+        snapshot.setMember(PLAYER, 0, battle.getPlayerPokemon());
+        snapshot.teamSize[PLAYER] = 1;
+        int size = Math.min(MAX_TEAM, enemyTeam.size());
+        for (int i = 0; i < size; i++) {
+            snapshot.setMember(ENEMY, i, enemyTeam.get(i));
+            snapshot.status[ENEMY * MAX_TEAM + i] = battle.getStatus(ENEMY, i);
+            snapshot.statusTurns[ENEMY * MAX_TEAM + i] = battle.getStatusTurns(ENEMY, i);
+        }
+        snapshot.teamSize[ENEMY] = size;
+        snapshot.active[ENEMY] = enemyActive;
+        snapshot.setStatus(PLAYER, battle.getStatus(PLAYER), battle.getStatusTurns(PLAYER));
+        for (int side = PLAYER; side <= ENEMY; side++) {
+            for (Stat stat : Stat.values()) snapshot.setStage(side, stat, battle.getStage(side, stat));
+        }
+        return snapshot;
+    }
+
+    private void setMember(int side, int member, Pokemon pokemon) {
+        int i = side * MAX_TEAM + member;
+        hp[i] = pokemon.getCurrentHp();
+        maxHp[i] = pokemon.getMaxHp();
+        level[i] = pokemon.getLevel();
+        for (Stat stat : Stat.values()) stats[i * Stat.COUNT + stat.ordinal()] = pokemon.getStat(stat);
+        types[i] = DamageModel.typePair(pokemon.getSpecies());
+        moveCount[i] = 0;
+        for (int slot = 0; slot < Pokemon.MOVE_SLOTS; slot++) {
+            int move = pokemon.getMove(slot);
+            moves[i * Pokemon.MOVE_SLOTS + slot] = move;
+            if (move != MoveTable.NO_MOVE) moveCount[i] = slot + 1;
+        }
+    }
+
+    public void copyFrom(BattleSnapshot other) {
+        System.arraycopy(other.hp, 0, hp, 0, hp.length);
+        System.arraycopy(other.maxHp, 0, maxHp, 0, maxHp.length);
+        System.arraycopy(other.level, 0, level, 0, level.length);
+        System.arraycopy(other.stats, 0, stats, 0, stats.length);
+        System.arraycopy(other.types, 0, types, 0, types.length);
+        System.arraycopy(other.moves, 0, moves, 0, moves.length);
+        System.arraycopy(other.moveCount, 0, moveCount, 0, moveCount.length);
+        System.arraycopy(other.teamSize, 0, teamSize, 0, 2);
+        System.arraycopy(other.active, 0, active, 0, 2);
+        System.arraycopy(other.stages, 0, stages, 0, stages.length);
+        System.arraycopy(other.status, 0, status, 0, status.length);
+        System.arraycopy(other.statusTurns, 0, statusTurns, 0, statusTurns.length);
+    }
+
+    public int getTeamSize(int side) {
+        return teamSize[side];
+    }
+
+    public int getActive(int side) {
+        return active[side];
+    }
+
+    public int getHp(int side, int member) {
+        return hp[side * MAX_TEAM + member];
+    }
+
+    /**
+     * Numero di mosse conosciute dal Pokémon in campo (almeno 1: senza mosse usa quella di riserva).
+     */
+    public int getMoveCount(int side) {
+        return Math.max(1, moveCount[slot(side)]);
+    }
+
+    /**
+     * true se il membro può entrare in campo al posto di quello attivo.
+     */
+    public boolean canSwitchTo(int side, int member) {
+        return member != active[side] && member >= 0 && member < teamSize[side] && hp[side * MAX_TEAM + member] > 0;
+    }
+
+    /**
+     * Lato sconfitto (tutti i membri esausti), oppure -1 se la battaglia continua.
+     */
+    public int getLoser() {
+        for (int side = PLAYER; side <= ENEMY; side++) {
+            if (firstHealthy(side) < 0) return side;
+        }
+        return -1;
+    }
+
+    /**
+     * Gioca un turno con le azioni indicate: per il giocatore una mossa ({@link BattleAI#move}),
+     * per l'avversario una mossa o l'indice del membro con cui cambiare.
+     */
+    public void playTurn(int playerAction, int enemyAction, RandomGenerator rng) {
+        int enemyMove = MoveTable.NO_MOVE;
+        if (!BattleAI.isMove(enemyAction) && canSwitchTo(ENEMY, enemyAction)) {
+            switchTo(ENEMY, enemyAction); // Il cambio costa il turno: si muove solo il giocatore
+        } else {
+            enemyMove = moveFor(ENEMY, enemyAction);
+        }
+        MoveEngine.playTurn(this, moveFor(PLAYER, playerAction), enemyMove, rng);
+        replaceFainted(PLAYER);
+        replaceFainted(ENEMY);
+    }
+
+    /**
+     * Mossa nello slot indicato del Pokémon in campo, con la stessa sostituzione usata nei turni
+     * (slot vuoto: la prima mossa; nessuna mossa valida: quella di riserva).
+     */
+    int getMove(int side, int slot) {
+        return moveFor(side, BattleAI.move(slot));
+    }
+
+    private int moveFor(int side, int action) {
+        int slot = BattleAI.isMove(action) ? BattleAI.moveSlot(action) : 0;
+        int move = moves[slot(side) * Pokemon.MOVE_SLOTS + slot];
+        if (move == MoveTable.NO_MOVE) move = moves[slot(side) * Pokemon.MOVE_SLOTS];
+        return MoveTable.getInstance().isValid(move) ? move : MoveTable.FALLBACK_MOVE;
+    }
+
+    private void switchTo(int side, int member) {
+        active[side] = member;
+        Arrays.fill(stages, side * Stat.COUNT, (side + 1) * Stat.COUNT, 0); // Lo stato resta al membro
+    }
+
+    private void replaceFainted(int side) {
+        if (hp[slot(side)] > 0) return;
+        int next = firstHealthy(side);
+        if (next >= 0) switchTo(side, next);
+    }
+
+    private int firstHealthy(int side) {
+        for (int m = 0; m < teamSize[side]; m++) {
+            if (hp[side * MAX_TEAM + m] > 0) return m;
+        }
+        return -1;
+    }
+
+    private int slot(int side) {
+        return side * MAX_TEAM + active[side];
+    }
+
+    // --- Combat ---
+
+    @Override
+    public int getLevel(int side) {
+        return level[slot(side)];
+    }
+
+    @Override
+    public int getStat(int side, Stat stat) {
+        return stats[slot(side) * Stat.COUNT + stat.ordinal()];
+    }
+
+    @Override
+    public int getHp(int side) {
+        return hp[slot(side)];
+    }
+
+    @Override
+    public int getMaxHp(int side) {
+        return maxHp[slot(side)];
+    }
+
+    @Override
+    public int getTypes(int side) {
+        return types[slot(side)];
+    }
+
+    @Override
+    public int getStage(int side, Stat stat) {
+        return stages[side * Stat.COUNT + stat.ordinal()];
+    }
+
+    @Override
+    public void setStage(int side, Stat stat, int stage) {
+        stages[side * Stat.COUNT + stat.ordinal()] = stage;
+    }
+
+    @Override
+    public Status getStatus(int side) {
+        return status[slot(side)];
+    }
+
+    @Override
+    public void setStatus(int side, Status newStatus, int turns) {
+        status[slot(side)] = newStatus;
+        statusTurns[slot(side)] = turns;
+    }
+
+    @Override
+    public int getStatusTurns(int side) {
+        return statusTurns[slot(side)];
+    }
+
+    @Override
+    public void damage(int side, int amount) {
+        int i = slot(side);
+        hp[i] = Math.max(0, hp[i] - amount);
+    }
+
+    @Override
+    public void event(BattleEvent type, int side, int value) {
+        // Nelle simulazioni gli eventi non servono
+    }
+}
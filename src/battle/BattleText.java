@@ -0,0 +1,66 @@
+package battle;
+
+import java.text.MessageFormat;
+import java.util.Locale;
+
+import engine.LocalizationManager;
+import entities.Pokemon;
+
+/**
+ * Trasforma gli eventi del {@link BattleLog} nel testo da mostrare, nella lingua corrente.
+ * Va usato solo quando un evento viene davvero mostrato o scritto nel log.
+ */
+public final class BattleText {
+
+    private BattleText() {
+    }
+
+    public static String describe(Battle battle, long sequence) {
+        BattleLog log = battle.getLog();
+        boolean player = log.isPlayer(sequence);
+        Pokemon subject = player ? battle.getPlayerPokemon() : battle.getEnemyTeam().get(log.getEnemyIndex(sequence));
+        int value = log.getValue(sequence);
+
+        return switch (log.getType(sequence)) {
+            case ATTACK -> format("battle.attack", subject.getName(), MoveTable.getInstance().getName(value));
+            case MISS -> format("battle.miss", subject.getName());
+            case DAMAGE -> format("battle.damage", subject.getName(), value);
+            case EFFECTIVENESS -> format(value == 0 ? "battle.effect.none" : value > 4096 ? "battle.effect.super" : "battle.effect.weak",
+                    subject.getName());
+            case HITS -> format("battle.hits", value);
+            case FAIL -> format("battle.fail");
+            case STATUS -> format("battle.status." + Status.values()[value].name().toLowerCase(Locale.ROOT), subject.getName());
+            case CURE -> format("battle.cure." + Status.values()[value].name().toLowerCase(Locale.ROOT), subject.getName());
+            case CANT_MOVE -> format("battle.cantMove." + Status.values()[value].name().toLowerCase(Locale.ROOT), subject.getName());
+            case RESIDUAL -> format("battle.residual." + Status.values()[value].name().toLowerCase(Locale.ROOT), subject.getName());
+            case STAT_CHANGE -> format(stageKey(value), subject.getName(),
+                    LocalizationManager.getInstance().getString("stat." + BattleEvent.stageStat(value).name()));
+            case SWITCH -> format("battle.switch", subject.getName());
+            case FAINT -> format(player ? "battle.faint.player" : "battle.faint.enemy", subject.getName());
+            case CAPTURE -> format(value != 0 ? "battle.capture.success" : "battle.capture.fail", subject.getName());
+            case NO_ESCAPE -> format("battle.noEscape");
+            case FLEE -> format("battle.flee");
+        };
+    }
+
+    /**
+     * Messaggio per una battaglia già finita alla partenza: un Pokémon esausto non può lottare.
+     */
+    public static String unableToBattle(Battle battle) {
+        Pokemon own = battle.getPlayerPokemon();
+        return own.isFainted() ? format("battle.unable.player", own.getName()) : format("battle.unable.enemy");
+    }
+
+    private static String stageKey(int value) {
+        int applied = BattleEvent.stageApplied(value);
+        if (applied == 0) {
+            return BattleEvent.stageRequested(value) > 0 ? "battle.stage.maxed" : "battle.stage.minimum";
+        }
+        if (applied > 0) return applied > 1 ? "battle.stage.up2" : "battle.stage.up";
+        return applied < -1 ? "battle.stage.down2" : "battle.stage.down";
+    }
+
+    private static String format(String key, Object... args) {
+        return MessageFormat.format(LocalizationManager.getInstance().getString(key), args);
+    }
+}
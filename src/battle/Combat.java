@@ -0,0 +1,50 @@
+package battle;
+
+import entities.Stat;
+
+/**
+ * Vista minima di una battaglia su cui lavorano le regole di {@link MoveEngine}.
+ * <p>
+ * La implementano {@link Battle} (con i Pokémon veri e gli eventi nel log) e {@link BattleSnapshot}
+ * (con soli array, per le simulazioni dell'IA): così le due battaglie seguono le stesse regole.
+ * I lati sono {@link BattleSnapshot#PLAYER} e {@link BattleSnapshot#ENEMY}, e si riferiscono
+ * sempre al Pokémon in campo.
+ */
+interface Combat {
+
+    int getLevel(int side);
+
+    /**
+     * Statistica senza le fasi.
+     */
+    int getStat(int side, Stat stat);
+
+    int getHp(int side);
+
+    int getMaxHp(int side);
+
+    /**
+     * Coppia di tipi, vedi {@link DamageModel#typePair}.
+     */
+    int getTypes(int side);
+
+    int getStage(int side, Stat stat);
+
+    void setStage(int side, Stat stat, int stage);
+
+    Status getStatus(int side);
+
+    /**
+     * Cambia lo stato; {@code turns} conta i turni di sonno rimasti.
+     */
+    void setStatus(int side, Status status, int turns);
+
+    int getStatusTurns(int side);
+
+    void damage(int side, int amount);
+
+    /**
+     * Notifica un evento. Le simulazioni lo ignorano.
+     */
+    void event(BattleEvent type, int side, int value);
+}
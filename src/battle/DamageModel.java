@@ -0,0 +1,214 @@
+package battle;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+import entities.PokemonType;
+import entities.Species;
+
+/**
+ * Calcolo dei danni con tabelle precalcolate: tabella dei tipi, STAB, modificatori di statistica,
+ * fattore di livello e distribuzione della variazione casuale.
+ * <p>
+ * Un colpo (attaccante, difensore, mossa) è descritto da un long impacchettato con {@link #hit}:
+ * livello, attacco e difesa già scelti (fisici o speciali) e modificati, potenza e tipo della mossa,
+ * coppie di tipi dei due Pokémon. Il danno si ottiene poi con pochi accessi ad array e
+ * moltiplicazioni intere, in virgola fissa con 4096 = 1x come nei giochi originali.
+ * {@link #expectedDamage(long[], int, float[])} calcola il danno medio di molti colpi in un solo passaggio:
+ * l'IA lo usa per decidere in che ordine esplorare le mosse (vedi {@link BattleAI}).
+ */
+public final class DamageModel {
+
+    public static final int ROLLS = 16; // Variazione casuale: dall'85% al 100%, 16 valori equiprobabili
+    public static final int MIN_STAGE = -6;
+    public static final int MAX_STAGE = 6;
+
+    private static final int TYPES = PokemonType.values().length;
+    private static final int NO_TYPE = TYPES; // Secondo tipo assente
+    private static final int TYPE_PAIRS = (TYPES + 1) * (TYPES + 1);
+    private static final int ONE = 4096;
+    private static final int STAB = 6144; // 1,5x
+    private static final int MAX_STAT = 4095;
+
+    // Layout del long: livello 7 bit, attacco 12, difesa 12, potenza 8, tipo della mossa 5, coppie di tipi 9 + 9
+    private static final int ATTACK_SHIFT = 7;
+    private static final int DEFENSE_SHIFT = 19;
+    private static final int POWER_SHIFT = 31;
+    private static final int MOVE_TYPE_SHIFT = 39;
+    private static final int ATTACKER_TYPES_SHIFT = 44;
+    private static final int DEFENDER_TYPES_SHIFT = 53;
+
+    private static final int[] LEVEL_FACTOR = new int[101];             // 2 * livello / 5 + 2
+    private static final int[] ROLL_PERCENT = new int[ROLLS];           // 85 .. 100
+    private static final int[] STAGE_MULTIPLIER = new int[MAX_STAGE - MIN_STAGE + 1];
+    private static final int[] EFFECTIVENESS = new int[TYPES * TYPE_PAIRS]; // Tipo della mossa contro coppia di tipi
+    private static final boolean[] SAME_TYPE = new boolean[TYPES * TYPE_PAIRS]; // STAB
+
+    // Efficacia di ogni tipo in attacco: super efficace (2x), poco efficace (0,5x), nessun effetto (0x)
+    private static final String[][] CHART = {
+        // attacco    2x                                       0,5x                                                     0x
+        {"NORMAL",   "",                                      "ROCK STEEL",                                            "GHOST"},
+        {"FIRE",     "GRASS ICE BUG STEEL",                   "FIRE WATER ROCK DRAGON",                                ""},
+        {"WATER",    "FIRE GROUND ROCK",                      "WATER GRASS DRAGON",                                    ""},
+        {"ELECTRIC", "WATER FLYING",                          "ELECTRIC GRASS DRAGON",                                 "GROUND"},
+        {"GRASS",    "WATER GROUND ROCK",                     "FIRE GRASS POISON FLYING BUG DRAGON STEEL",             ""},
+        {"ICE",      "GRASS GROUND FLYING DRAGON",            "FIRE WATER ICE STEEL",                                  ""},
+        {"FIGHTING", "NORMAL ICE ROCK DARK STEEL",            "POISON FLYING PSYCHIC BUG FAIRY",                       "GHOST"},
+        {"POISON",   "GRASS FAIRY",                           "POISON GROUND ROCK GHOST",                              "STEEL"},
+        {"GROUND",   "FIRE ELECTRIC POISON ROCK STEEL",       "GRASS BUG",                                             "FLYING"},
+        {"FLYING",   "GRASS FIGHTING BUG",                    "ELECTRIC ROCK STEEL",                                   ""},
+        {"PSYCHIC",  "FIGHTING POISON",                       "PSYCHIC STEEL",                                         "DARK"},
+        {"BUG",      "GRASS PSYCHIC DARK",                    "FIRE FIGHTING POISON FLYING GHOST STEEL FAIRY",         ""},
+        {"ROCK",     "FIRE ICE FLYING BUG",                   "FIGHTING GROUND STEEL",                                 ""},
+        {"GHOST",    "PSYCHIC GHOST",                         "DARK",                                                  "NORMAL"},
+        {"DRAGON",   "DRAGON",                                "STEEL",                                                 "FAIRY"},
+        {"DARK",     "PSYCHIC GHOST",                         "FIGHTING DARK FAIRY",                                   ""},
+        {"STEEL",    "ICE ROCK FAIRY",                        "FIRE WATER ELECTRIC STEEL",                             ""},
+        {"FAIRY",    "FIGHTING DRAGON DARK",                  "FIRE POISON STEEL",                                     ""},
+    };
+
+    static {
+        for (int level = 0; level <= 100; level++) {
+            LEVEL_FACTOR[level] = 2 * level / 5 + 2;
+        }
+        for (int r = 0; r < ROLLS; r++) {
+            ROLL_PERCENT[r] = 85 + r;
+        }
+        for (int stage = MIN_STAGE; stage <= MAX_STAGE; stage++) {
+            STAGE_MULTIPLIER[stage - MIN_STAGE] = ONE * Math.max(2, 2 + stage) / Math.max(2, 2 - stage);
+        }
+
+        int[] single = new int[TYPES * TYPES]; // Efficacia contro un tipo solo
+        Arrays.fill(single, ONE);
+        for (String[] row : CHART) {
+            int attacking = PokemonType.valueOf(row[0]).ordinal();
+            fillChart(single, attacking, row[1], 2 * ONE);
+            fillChart(single, attacking, row[2], ONE / 2);
+            fillChart(single, attacking, row[3], 0);
+        }
+        for (int move = 0; move < TYPES; move++) {
+            for (int first = 0; first <= TYPES; first++) {
+                for (int second = 0; second <= TYPES; second++) {
+                    int pair = first * (TYPES + 1) + second;
+                    int e1 = first == NO_TYPE ? ONE : single[move * TYPES + first];
+                    int e2 = second == NO_TYPE || second == first ? ONE : single[move * TYPES + second];
+                    EFFECTIVENESS[move * TYPE_PAIRS + pair] = e1 * e2 / ONE;
+                    SAME_TYPE[move * TYPE_PAIRS + pair] = move == first || move == second;
+                }
+            }
+        }
+    }
+
+    private DamageModel() {
+    }
+
+    private static void fillChart(int[] single, int attacking, String defenders, int value) {
+        if (defenders.isEmpty()) return;
+        for (String name : defenders.split(" ")) {
+            single[attacking * TYPES + PokemonType.valueOf(name).ordinal()] = value;
+        }
+    }
+
+    /**
+     * Indice della coppia di tipi di una specie, da passare a {@link #hit}.
+     */
+    public static int typePair(Species species) {
+        return typePair(species.primaryType, species.secondaryType);
+    }
+
+    public static int typePair(PokemonType primary, PokemonType secondary) {
+        int second = secondary == null ? NO_TYPE : secondary.ordinal();
+        return primary.ordinal() * (TYPES + 1) + second;
+    }
+
+    /**
+     * true se uno dei due tipi della coppia è quello indicato.
+     */
+    public static boolean hasType(int types, PokemonType type) {
+        return types / (TYPES + 1) == type.ordinal() || types % (TYPES + 1) == type.ordinal();
+    }
+
+    /**
+     * Moltiplicatore del tipo della mossa contro la coppia di tipi, in 4096esimi (4096 = 1x, 0 = nessun effetto).
+     */
+    public static int effectiveness(PokemonType moveType, int defenderTypes) {
+        return EFFECTIVENESS[moveType.ordinal() * TYPE_PAIRS + defenderTypes];
+    }
+
+    /**
+     * Statistica con il modificatore di fase (da -6 a +6).
+     */
+    public static int applyStage(int stat, int stage) {
+        int s = Math.max(MIN_STAGE, Math.min(MAX_STAGE, stage));
+        return stat * STAGE_MULTIPLIER[s - MIN_STAGE] / ONE;
+    }
+
+    /**
+     * Impacchetta un colpo. Attacco e difesa sono quelli già scelti (fisici o speciali) e già modificati.
+     */
+    public static long hit(int level, int attack, int defense, int power, PokemonType moveType,
+                           int attackerTypes, int defenderTypes) {
+        return clamp(level, 100)
+                | (long) clamp(attack, MAX_STAT) << ATTACK_SHIFT
+                | (long) clamp(defense, MAX_STAT) << DEFENSE_SHIFT
+                | (long) clamp(power, 255) << POWER_SHIFT
+                | (long) moveType.ordinal() << MOVE_TYPE_SHIFT
+                | (long) attackerTypes << ATTACKER_TYPES_SHIFT
+                | (long) defenderTypes << DEFENDER_TYPES_SHIFT;
+    }
+
+    private static int clamp(int value, int max) {
+        return Math.max(0, Math.min(max, value));
+    }
+
+    /**
+     * Danno del colpo con la variazione indicata (0 = 85%, {@code ROLLS - 1} = 100%).
+     */
+    public static int damage(long hit, int roll) {
+        int moveType = (int) (hit >>> MOVE_TYPE_SHIFT) & 0x1F;
+        int effect = EFFECTIVENESS[moveType * TYPE_PAIRS + ((int) (hit >>> DEFENDER_TYPES_SHIFT) & 0x1FF)];
+        boolean stab = SAME_TYPE[moveType * TYPE_PAIRS + ((int) (hit >>> ATTACKER_TYPES_SHIFT) & 0x1FF)];
+        return applyModifiers(baseDamage(hit), roll, stab, effect);
+    }
+
+    // Parte del danno che non dipende dalla variazione né dai tipi (0 per le mosse senza potenza)
+    private static int baseDamage(long hit) {
+        int level = (int) hit & 0x7F;
+        int attack = (int) (hit >>> ATTACK_SHIFT) & 0xFFF;
+        int defense = (int) (hit >>> DEFENSE_SHIFT) & 0xFFF;
+        int power = (int) (hit >>> POWER_SHIFT) & 0xFF;
+        if (power == 0) return 0;
+        return LEVEL_FACTOR[level] * power * attack / Math.max(1, defense) / 50 + 2;
+    }
+
+    // Variazione, STAB ed efficacia, nell'ordine dei giochi originali. Potenza 0 o immunità: nessun danno.
+    // In long: con statistiche e potenza al massimo base * STAB non sta in un int
+    private static int applyModifiers(int base, int roll, boolean stab, int effect) {
+        if (effect == 0 || base == 0) return 0;
+        long damage = (long) base * ROLL_PERCENT[roll] / 100;
+        if (stab) damage = damage * STAB / ONE;
+        return (int) Math.max(1, damage * effect / ONE);
+    }
+
+    public static int rollDamage(long hit, RandomGenerator rng) {
+        return damage(hit, rng.nextInt(ROLLS));
+    }
+
+    /**
+     * Danno medio (su tutte le variazioni) dei primi {@code count} colpi, scritto in {@code out}.
+     */
+    public static void expectedDamage(long[] hits, int count, float[] out) {
+        for (int i = 0; i < count; i++) {
+            long hit = hits[i];
+            int moveType = (int) (hit >>> MOVE_TYPE_SHIFT) & 0x1F;
+            int effect = EFFECTIVENESS[moveType * TYPE_PAIRS + ((int) (hit >>> DEFENDER_TYPES_SHIFT) & 0x1FF)];
+            boolean stab = SAME_TYPE[moveType * TYPE_PAIRS + ((int) (hit >>> ATTACKER_TYPES_SHIFT) & 0x1FF)];
+            int base = baseDamage(hit);
+            int total = 0;
+            for (int r = 0; r < ROLLS; r++) {
+                total += applyModifiers(base, r, stab, effect);
+            }
+            out[i] = total / (float) ROLLS;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package battle;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Effetto secondario di una mossa (stato, variazione di statistica...). Gli effetti vengono
+ * creati una volta sola da {@link MoveTable} leggendo il file delle mosse, con i parametri già
+ * legati: durante la battaglia si chiama solo {@link #apply}.
+ */
+@FunctionalInterface
+interface MoveEffect {
+
+    void apply(Combat combat, int user, int target, RandomGenerator rng);
+}
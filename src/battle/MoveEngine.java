@@ -0,0 +1,173 @@
+package battle;
+
+import java.util.random.RandomGenerator;
+
+import entities.Stat;
+
+/**
+ * Regole di un turno: ordine di azione, precisione, danni, colpi multipli, effetti e stati.
+ * <p>
+ * Lavora su un {@link Combat}, quindi le stesse regole valgono per la battaglia vera e per le
+ * simulazioni dell'IA. Tutti i dati delle mosse arrivano dagli array di {@link MoveTable}:
+ * il costo di una mossa non dipende da quante mosse esistono.
+ */
+final class MoveEngine {
+
+    private static final int PLAYER = BattleSnapshot.PLAYER;
+    private static final int ENEMY = BattleSnapshot.ENEMY;
+    private static final int NEUTRAL = 4096; // Efficacia 1x in DamageModel
+    private static final int MAX_SLEEP_TURNS = 3;
+
+    private MoveEngine() {
+    }
+
+    /**
+     * Gioca un turno con le mosse scelte. {@link MoveTable#NO_MOVE} per un lato che ha già
+     * usato il turno (ad esempio per cambiare Pokémon).
+     */
+    static void playTurn(Combat combat, int playerMove, int enemyMove, RandomGenerator rng) {
+        int first = playerActsFirst(combat, playerMove, enemyMove, rng) ? PLAYER : ENEMY;
+        int second = 1 - first;
+        act(combat, first, first == PLAYER ? playerMove : enemyMove, rng);
+        act(combat, second, second == PLAYER ? playerMove : enemyMove, rng);
+        endOfTurn(combat, first);
+        endOfTurn(combat, second);
+    }
+
+    // Prima la priorità della mossa, poi la velocità; a parità decide il caso
+    private static boolean playerActsFirst(Combat combat, int playerMove, int enemyMove, RandomGenerator rng) {
+        MoveTable moves = MoveTable.getInstance();
+        int playerPriority = playerMove != MoveTable.NO_MOVE ? moves.getPriority(playerMove) : 0;
+        int enemyPriority = enemyMove != MoveTable.NO_MOVE ? moves.getPriority(enemyMove) : 0;
+        if (playerPriority != enemyPriority) return playerPriority > enemyPriority;
+        int playerSpeed = speed(combat, PLAYER);
+        int enemySpeed = speed(combat, ENEMY);
+        return playerSpeed != enemySpeed ? playerSpeed > enemySpeed : rng.nextBoolean();
+    }
+
+    private static int speed(Combat combat, int side) {
+        int speed = DamageModel.applyStage(combat.getStat(side, Stat.SPEED), combat.getStage(side, Stat.SPEED));
+        return combat.getStatus(side) == Status.PARALYSIS ? speed / 2 : speed;
+    }
+
+    private static void act(Combat combat, int side, int move, RandomGenerator rng) {
+        if (move == MoveTable.NO_MOVE || combat.getHp(side) <= 0 || combat.getHp(1 - side) <= 0) return;
+        if (canMove(combat, side, rng)) {
+            useMove(combat, side, move, rng);
+        }
+    }
+
+    private static boolean canMove(Combat combat, int side, RandomGenerator rng) {
+        Status status = combat.getStatus(side);
+        if (status == Status.SLEEP) {
+            int turns = combat.getStatusTurns(side);
+            if (turns > 0) {
+                combat.setStatus(side, Status.SLEEP, turns - 1);
+                combat.event(BattleEvent.CANT_MOVE, side, status.ordinal());
+                return false;
+            }
+            combat.setStatus(side, Status.NONE, 0);
+            combat.event(BattleEvent.CURE, side, status.ordinal());
+        } else if (status == Status.PARALYSIS && rng.nextInt(4) == 0) {
+            combat.event(BattleEvent.CANT_MOVE, side, status.ordinal());
+            return false;
+        }
+        return true;
+    }
+
+    static void useMove(Combat combat, int user, int move, RandomGenerator rng) {
+        MoveTable moves = MoveTable.getInstance();
+        int target = 1 - user;
+        combat.event(BattleEvent.ATTACK, user, move);
+
+        int accuracy = moves.getAccuracy(move);
+        if (accuracy > 0 && rng.nextInt(100) >= accuracy) {
+            combat.event(BattleEvent.MISS, user, move);
+            return;
+        }
+
+        if (moves.getCategory(move) != MoveTable.Category.STATUS) {
+            int effect = DamageModel.effectiveness(moves.getType(move), combat.getTypes(target));
+            if (effect == 0) {
+                combat.event(BattleEvent.EFFECTIVENESS, target, 0);
+                return; // Nessun danno e nessun effetto secondario
+            }
+            int min = moves.getMinHits(move);
+            int max = moves.getMaxHits(move);
+            int hits = min == max ? min : min + rng.nextInt(max - min + 1);
+            long hit = hit(combat, user, target, move);
+            int landed = 0;
+            while (landed < hits && combat.getHp(target) > 0) {
+                int damage = DamageModel.rollDamage(hit, rng);
+                combat.damage(target, damage);
+                combat.event(BattleEvent.DAMAGE, target, damage);
+                landed++;
+            }
+            if (effect != NEUTRAL) combat.event(BattleEvent.EFFECTIVENESS, target, effect);
+            if (max > 1) combat.event(BattleEvent.HITS, target, landed);
+            if (combat.getHp(target) <= 0) combat.event(BattleEvent.FAINT, target, 0);
+        }
+
+        for (MoveEffect effect : moves.getEffects(move)) {
+            effect.apply(combat, user, target, rng);
+        }
+    }
+
+    /**
+     * Colpo impacchettato per {@link DamageModel} di {@code user} su {@code target} con la mossa:
+     * statistiche fisiche o speciali secondo la categoria, con le fasi e la scottatura già applicate.
+     */
+    static long hit(Combat combat, int user, int target, int move) {
+        MoveTable moves = MoveTable.getInstance();
+        boolean physical = moves.getCategory(move) == MoveTable.Category.PHYSICAL;
+        Stat attackStat = physical ? Stat.ATTACK : Stat.SP_ATTACK;
+        Stat defenseStat = physical ? Stat.DEFENSE : Stat.SP_DEFENSE;
+        int attack = DamageModel.applyStage(combat.getStat(user, attackStat), combat.getStage(user, attackStat));
+        if (physical && combat.getStatus(user) == Status.BURN) attack /= 2;
+        int defense = DamageModel.applyStage(combat.getStat(target, defenseStat), combat.getStage(target, defenseStat));
+        return DamageModel.hit(combat.getLevel(user), attack, defense, moves.getPower(move), moves.getType(move),
+                combat.getTypes(user), combat.getTypes(target));
+    }
+
+    /**
+     * Effetto "status": con probabilità {@code chance}% dà lo stato al Pokémon, se non ne ha già uno
+     * e il suo tipo non lo rende immune. Se l'effetto era sicuro e non riesce, la mossa fallisce.
+     */
+    static void inflictStatus(Combat combat, int side, Status status, int chance, RandomGenerator rng) {
+        if (combat.getHp(side) <= 0) return;
+        boolean immune = status.isImmune(combat.getTypes(side));
+        if (combat.getStatus(side) != Status.NONE || immune) {
+            if (chance >= 100) combat.event(BattleEvent.FAIL, side, 0);
+            return;
+        }
+        if (chance < 100 && rng.nextInt(100) >= chance) return;
+        int turns = status == Status.SLEEP ? 1 + rng.nextInt(MAX_SLEEP_TURNS) : 0;
+        combat.setStatus(side, status, turns);
+        combat.event(BattleEvent.STATUS, side, status.ordinal());
+    }
+
+    /**
+     * Effetto "stage": con probabilità {@code chance}% cambia di {@code delta} la fase della statistica.
+     */
+    static void changeStage(Combat combat, int side, Stat stat, int delta, int chance, RandomGenerator rng) {
+        if (combat.getHp(side) <= 0) return;
+        if (chance < 100 && rng.nextInt(100) >= chance) return;
+        int current = combat.getStage(side, stat);
+        int next = Math.max(DamageModel.MIN_STAGE, Math.min(DamageModel.MAX_STAGE, current + delta));
+        combat.setStage(side, stat, next);
+        combat.event(BattleEvent.STAT_CHANGE, side, BattleEvent.packStageChange(stat, next - current, delta));
+    }
+
+    // Danni di fine turno da scottatura e avvelenamento
+    private static void endOfTurn(Combat combat, int side) {
+        if (combat.getHp(side) <= 0) return;
+        Status status = combat.getStatus(side);
+        int fraction = status == Status.BURN ? 16 : status == Status.POISON ? 8 : 0;
+        if (fraction == 0) return;
+        int damage = Math.max(1, combat.getMaxHp(side) / fraction);
+        combat.event(BattleEvent.RESIDUAL, side, status.ordinal());
+        combat.damage(side, damage);
+        combat.event(BattleEvent.DAMAGE, side, damage);
+        if (combat.getHp(side) <= 0) combat.event(BattleEvent.FAINT, side, 0);
+    }
+}
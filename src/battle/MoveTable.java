@@ -0,0 +1,283 @@
+package battle;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import engine.LocalizationManager;
+import entities.Pokemon;
+import entities.PokemonType;
+import entities.Species;
+import entities.SpeciesRegistry;
+import entities.Stat;
+
+/**
+ * Tabella delle mosse, letta una sola volta da src/assets/data/moves.txt (o dal file indicato
+ * dalla proprietà di sistema {@code pokemon.movesFile}) e da src/assets/data/learnsets.txt.
+ * <p>
+ * I dati numerici sono in array primitivi indicizzati per id e gli effetti sono già trasformati
+ * in oggetti {@link MoveEffect} con i parametri legati: in battaglia una mossa costa qualche
+ * lettura da array, qualunque sia il numero di mosse, senza riflessione né switch su stringhe.
+ */
+public final class MoveTable {
+
+    public enum Category { PHYSICAL, SPECIAL, STATUS }
+
+    public static final int NO_MOVE = 0;
+    public static final int FALLBACK_MOVE = 1; // Usata da chi non conosce nessuna mossa
+
+    private static final String FILE_PATH = "src/assets/data/moves.txt";
+    private static final String LEARNSET_PATH = "src/assets/data/learnsets.txt";
+    private static final MoveEffect[] NO_EFFECTS = new MoveEffect[0];
+
+    private static volatile MoveTable instance;
+
+    private final String[] names;
+    private final PokemonType[] types;
+    private final Category[] categories;
+    private final short[] power;
+    private final byte[] accuracy; // 0: non manca mai
+    private final byte[] priority;
+    private final byte[] minHits;
+    private final byte[] maxHits;
+    private final MoveEffect[][] effects;
+    private final Map<String, Integer> byName;
+    private final Map<Integer, int[]> learnsets; // Per specie: (livello << 16 | mossa), in ordine di livello
+
+    private MoveTable(int size) {
+        names = new String[size];
+        types = new PokemonType[size];
+        categories = new Category[size];
+        power = new short[size];
+        accuracy = new byte[size];
+        priority = new byte[size];
+        minHits = new byte[size];
+        maxHits = new byte[size];
+        effects = new MoveEffect[size][];
+        byName = new HashMap<>();
+        learnsets = new HashMap<>();
+    }
+
+    public static MoveTable getInstance() {
+        MoveTable result = instance;
+        if (result == null) {
+            synchronized (MoveTable.class) {
+                result = instance;
+                if (result == null) {
+                    result = load();
+                    instance = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static MoveTable load() {
+        List<String[]> rows = new ArrayList<>();
+        int maxId = FALLBACK_MOVE;
+        for (String line : readLines(System.getProperty("pokemon.movesFile", FILE_PATH))) {
+            String[] parts = line.split(",", -1);
+            try {
+                maxId = Math.max(maxId, Integer.parseInt(parts[0].trim()));
+                rows.add(parts);
+            } catch (RuntimeException e) {
+                System.err.println("Mossa non valida, riga ignorata: " + line);
+            }
+        }
+
+        MoveTable table = new MoveTable(maxId + 1);
+        // Se il file manca, la mossa di riserva è comunque un attacco normale
+        table.define(FALLBACK_MOVE, "Azione", PokemonType.NORMAL, Category.PHYSICAL, 40, 100, 0, 1, 1, NO_EFFECTS);
+        for (String[] parts : rows) {
+            try {
+                table.parse(parts);
+            } catch (RuntimeException e) {
+                System.err.println("Mossa non valida, riga ignorata: " + String.join(",", parts) + " (" + e.getMessage() + ")");
+            }
+        }
+        table.loadLearnsets();
+        return table;
+    }
+
+    private void parse(String[] parts) {
+        int id = Integer.parseInt(parts[0].trim());
+        int hitsMin = 1;
+        int hitsMax = 1;
+        List<MoveEffect> compiled = new ArrayList<>();
+        String effectList = parts.length > 7 ? parts[7].trim() : "";
+        for (String token : effectList.isEmpty() ? new String[0] : effectList.split("\\s+")) {
+            String[] args = token.split(":");
+            switch (args[0]) {
+                case "hits" -> {
+                    String[] range = args[1].split("-");
+                    hitsMin = Integer.parseInt(range[0]);
+                    hitsMax = range.length > 1 ? Integer.parseInt(range[1]) : hitsMin;
+                }
+                case "status" -> {
+                    Status status = Status.valueOf(args[1]);
+                    int chance = args.length > 2 ? parseChance(args[2]) : 100;
+                    compiled.add((combat, user, target, rng) -> MoveEngine.inflictStatus(combat, target, status, chance, rng));
+                }
+                case "stage" -> {
+                    Stat stat = Stat.valueOf(args[1]);
+                    int delta = Integer.parseInt(args[2].replace("+", ""));
+                    boolean self = "self".equals(args[3]);
+                    int chance = args.length > 4 ? parseChance(args[4]) : 100;
+                    compiled.add((combat, user, target, rng) ->
+                            MoveEngine.changeStage(combat, self ? user : target, stat, delta, chance, rng));
+                }
+                default -> throw new IllegalArgumentException("effetto sconosciuto " + args[0]);
+            }
+        }
+        define(id, parts[1].trim(), PokemonType.valueOf(parts[2].trim()), Category.valueOf(parts[3].trim()),
+                Integer.parseInt(parts[4].trim()), Integer.parseInt(parts[5].trim()), Integer.parseInt(parts[6].trim()),
+                hitsMin, hitsMax, compiled.toArray(NO_EFFECTS));
+    }
+
+    private static int parseChance(String value) {
+        return Integer.parseInt(value.replace("%", ""));
+    }
+
+    private void define(int id, String name, PokemonType type, Category category, int movePower, int moveAccuracy,
+                        int movePriority, int hitsMin, int hitsMax, MoveEffect[] moveEffects) {
+        if (names[id] != null) byName.remove(names[id].toLowerCase(Locale.ROOT));
+        names[id] = name;
+        types[id] = type;
+        categories[id] = category;
+        power[id] = (short) movePower;
+        accuracy[id] = (byte) moveAccuracy;
+        priority[id] = (byte) movePriority;
+        minHits[id] = (byte) Math.max(1, hitsMin);
+        maxHits[id] = (byte) Math.max(hitsMin, hitsMax);
+        effects[id] = moveEffects;
+        byName.put(name.toLowerCase(Locale.ROOT), id);
+    }
+
+    private void loadLearnsets() {
+        Map<Integer, List<Integer>> lists = new HashMap<>();
+        for (String line : readLines(LEARNSET_PATH)) {
+            String[] parts = line.split(",");
+            Species species = parts.length == 3 ? SpeciesRegistry.getInstance().get(parts[0].trim()) : null;
+            int move = parts.length == 3 ? getId(parts[2].trim()) : NO_MOVE;
+            int level = parts.length == 3 && parts[1].trim().matches("\\d+") ? Integer.parseInt(parts[1].trim()) : -1;
+            if (species == null || move == NO_MOVE || level < 0) {
+                System.err.println("Riga del learnset ignorata: " + line);
+                continue;
+            }
+            lists.computeIfAbsent(species.id, k -> new ArrayList<>()).add(level << 16 | move);
+        }
+        for (Map.Entry<Integer, List<Integer>> entry : lists.entrySet()) {
+            int[] packed = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+            Arrays.sort(packed);
+            learnsets.put(entry.getKey(), packed);
+        }
+    }
+
+    private static List<String> readLines(String path) {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) lines.add(line);
+            }
+        } catch (IOException e) {
+            System.err.println("Errore nel caricare " + path + ": " + e.getMessage());
+        }
+        return lines;
+    }
+
+    public boolean isValid(int id) {
+        return id > 0 && id < names.length && names[id] != null;
+    }
+
+    /**
+     * Id della mossa (senza distinguere maiuscole e minuscole), oppure {@link #NO_MOVE}.
+     */
+    public int getId(String name) {
+        return byName.getOrDefault(name.toLowerCase(Locale.ROOT), NO_MOVE);
+    }
+
+    /**
+     * Nome della mossa nella lingua corrente (chiave {@code move.<id>}); se manca la traduzione,
+     * quello del file dei dati, che resta il nome usato da {@link #getId}.
+     */
+    public String getName(int id) {
+        LocalizationManager localization = LocalizationManager.getInstance();
+        String key = "move." + id;
+        return localization.hasString(key) ? localization.getString(key) : names[id];
+    }
+
+    public PokemonType getType(int id) {
+        return types[id];
+    }
+
+    public Category getCategory(int id) {
+        return categories[id];
+    }
+
+    public int getPower(int id) {
+        return power[id];
+    }
+
+    public int getAccuracy(int id) {
+        return accuracy[id];
+    }
+
+    public int getPriority(int id) {
+        return priority[id];
+    }
+
+    public int getMinHits(int id) {
+        return minHits[id];
+    }
+
+    public int getMaxHits(int id) {
+        return maxHits[id];
+    }
+
+    // Array interno: chi lo usa non deve modificarlo
+    MoveEffect[] getEffects(int id) {
+        return effects[id];
+    }
+
+    public List<String> getNames() {
+        List<String> list = new ArrayList<>();
+        for (String name : names) {
+            if (name != null) list.add(name);
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Le ultime (fino a 4) mosse imparate dalla specie entro il livello, impacchettate come in {@link Pokemon}.
+     */
+    public long defaultMoves(Species species, int level) {
+        int[] learnset = learnsets.get(species.id);
+        if (learnset == null) return FALLBACK_MOVE;
+        int last = -1;
+        for (int i = 0; i < learnset.length && (learnset[i] >>> 16) <= level; i++) last = i;
+        long moves = 0;
+        int slot = 0;
+        for (int i = Math.max(0, last - Pokemon.MOVE_SLOTS + 1); i <= last; i++) {
+            moves |= (long) (learnset[i] & 0xFFFF) << (16 * slot++);
+        }
+        return moves != 0 ? moves : FALLBACK_MOVE;
+    }
+
+    /**
+     * Dà le mosse di base a un Pokémon che non ne conosce nessuna (ad esempio da un vecchio salvataggio).
+     */
+    public void assignDefaultMoves(Pokemon pokemon) {
+        if (pokemon.getPackedMoves() == 0) {
+            pokemon.setPackedMoves(defaultMoves(pokemon.getSpecies(), pokemon.getLevel()));
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package battle;
+
+import entities.PokemonType;
+
+/**
+ * Problemi di stato. Un Pokémon ne può avere uno solo alla volta.
+ */
+public enum Status {
+    NONE,
+    BURN(PokemonType.FIRE),                        // Attacco fisico dimezzato, perde 1/16 dei PS a fine turno
+    POISON(PokemonType.POISON, PokemonType.STEEL), // Perde 1/8 dei PS a fine turno
+    PARALYSIS(PokemonType.ELECTRIC),               // Velocità dimezzata, 1 volta su 4 non si muove
+    SLEEP;                                         // Non si muove per 1-3 turni
+
+    private final PokemonType[] immuneTypes; // I Pokémon di uno di questi tipi non subiscono lo stato
+
+    Status(PokemonType... immuneTypes) {
+        this.immuneTypes = immuneTypes;
+    }
+
+    /**
+     * true se la coppia di tipi ({@link DamageModel#typePair}) rende immuni a questo stato.
+     */
+    public boolean isImmune(int types) {
+        for (PokemonType type : immuneTypes) {
+            if (DamageModel.hasType(types, type)) return true;
+        }
+        return false;
+    }
+}
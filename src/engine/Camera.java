@@ -0,0 +1,54 @@
+package engine;
+
+/**
+ * Telecamera dell'overworld: tiene la posizione in pixel (già scalati) dell'angolo
+ * in alto a sinistra della vista e calcola il rettangolo di tile visibili,
+ * da cui {@link TileChunkCache} ricava i chunk da disegnare.
+ */
+public class Camera {
+
+    private final int viewWidth;   // Larghezza della vista in pixel
+    private final int viewHeight;  // Altezza della vista in pixel
+    private final int tilePixels;  // Lato di un tile a schermo (TILE_SIZE * SCALE)
+
+    private int x, y;
+
+    // Rettangolo visibile (estremi inclusi), già limitato ai bordi della mappa
+    private int firstCol, firstRow, lastCol, lastRow;
+
+    public Camera(int viewWidth, int viewHeight, int tilePixels) {
+        this.viewWidth = viewWidth;
+        this.viewHeight = viewHeight;
+        this.tilePixels = tilePixels;
+    }
+
+    /**
+     * Centra la telecamera sul tile indicato e ricalcola i tile visibili.
+     * @param tileX colonna del tile da centrare.
+     * @param tileY riga del tile da centrare.
+     * @param mapWidth larghezza della mappa in tile.
+     * @param mapHeight altezza della mappa in tile.
+     */
+    public void centerOn(int tileX, int tileY, int mapWidth, int mapHeight) {
+        x = tileX * tilePixels - viewWidth / 2 + tilePixels / 2;
+        y = tileY * tilePixels - viewHeight / 2 + tilePixels / 2;
+        updateVisibleArea(mapWidth, mapHeight);
+    }
+
+    private void updateVisibleArea(int mapWidth, int mapHeight) {
+        // Nessun margine: i chunk si disegnano alla posizione esatta in pixel, senza buchi ai bordi
+        firstCol = Math.max(0, Math.floorDiv(x, tilePixels));
+        firstRow = Math.max(0, Math.floorDiv(y, tilePixels));
+        lastCol = Math.min(mapWidth - 1, Math.floorDiv(x + viewWidth - 1, tilePixels));
+        lastRow = Math.min(mapHeight - 1, Math.floorDiv(y + viewHeight - 1, tilePixels));
+    }
+
+    public int getX() { return x; }
+    public int getY() { return y; }
+    public int getFirstCol() { return firstCol; }
+    public int getFirstRow() { return firstRow; }
+    public int getLastCol() { return lastCol; }
+    public int getLastRow() { return lastRow; }
+    public int getViewWidth() { return viewWidth; }
+    public int getViewHeight() { return viewHeight; }
+}
@@ -0,0 +1,73 @@
+package engine;
+
+/**
+ * Statistiche sui tempi dei frame raccolte dal GameLoop.
+ * Tiene gli ultimi N campioni in un buffer circolare, senza allocare a ogni frame.
+ */
+public class FrameStats {
+
+    private final long[] frameTimes; // Nanosecondi tra due render consecutivi
+    private int index = 0;
+    private int count = 0;
+    private long totalUpdates = 0;
+    private long droppedUpdates = 0;
+
+    public FrameStats(int sampleCount) {
+        this.frameTimes = new long[sampleCount];
+    }
+
+    public synchronized void recordFrame(long frameNanos) {
+        frameTimes[index] = frameNanos;
+        index = (index + 1) % frameTimes.length;
+        if (count < frameTimes.length) count++;
+    }
+
+    public synchronized void recordUpdates(int updates) {
+        totalUpdates += updates;
+    }
+
+    // Update saltati perché il loop era troppo in ritardo per recuperarli tutti
+    public synchronized void recordDroppedUpdates(long dropped) {
+        droppedUpdates += dropped;
+    }
+
+    public synchronized double getAverageFrameMillis() {
+        if (count == 0) return 0;
+        long sum = 0;
+        for (int i = 0; i < count; i++) sum += frameTimes[i];
+        return sum / (double) count / 1_000_000.0;
+    }
+
+    public synchronized double getMaxFrameMillis() {
+        long max = 0;
+        for (int i = 0; i < count; i++) max = Math.max(max, frameTimes[i]);
+        return max / 1_000_000.0;
+    }
+
+    public synchronized double getMinFrameMillis() {
+        if (count == 0) return 0;
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < count; i++) min = Math.min(min, frameTimes[i]);
+        return min / 1_000_000.0;
+    }
+
+    public double getFps() {
+        double avg = getAverageFrameMillis();
+        return avg > 0 ? 1000.0 / avg : 0;
+    }
+
+    public synchronized long getTotalUpdates() {
+        return totalUpdates;
+    }
+
+    public synchronized long getDroppedUpdates() {
+        return droppedUpdates;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("FPS %.1f | frame avg %.2f ms, min %.2f ms, max %.2f ms | update %d, saltati %d",
+                getFps(), getAverageFrameMillis(), getMinFrameMillis(), getMaxFrameMillis(),
+                getTotalUpdates(), getDroppedUpdates());
+    }
+}
@@ -0,0 +1,75 @@
+package engine;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Orologio del gioco, da cui si ricava la fascia oraria (gli incontri cambiano fra giorno e notte).
+ * <p>
+ * Il tempo avanza solo con gli update del loop a passo fisso, non con l'orologio di sistema:
+ * con lo stesso orario di partenza, lo stesso seme e gli stessi input una partita si rigioca
+ * identica. L'orario di partenza si imposta con la proprietà di sistema {@code pokemon.startTime}
+ * (HH:mm, utile per un replay) altrimenti è l'ora di sistema all'avvio, come nei giochi originali.
+ * <p>
+ * Va usato dal thread di gioco, come gli stream di {@link RandomService}.
+ */
+public final class GameClock {
+
+    private static final long NANOS_PER_DAY = 24L * 60 * 60 * 1_000_000_000L;
+
+    private static volatile GameClock instance;
+
+    private final LocalTime start;
+    private long elapsed; // Nanosecondi di gioco dalla partenza, modulo un giorno
+
+    public GameClock(LocalTime start) {
+        this.start = start;
+    }
+
+    public static GameClock getInstance() {
+        GameClock result = instance;
+        if (result == null) {
+            synchronized (GameClock.class) {
+                result = instance;
+                if (result == null) {
+                    result = new GameClock(initialTime());
+                    instance = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Riparte dall'orario indicato (ad esempio all'avvio di un replay).
+     */
+    public static synchronized void reset(LocalTime start) {
+        instance = new GameClock(start);
+    }
+
+    private static LocalTime initialTime() {
+        String configured = System.getProperty("pokemon.startTime");
+        LocalTime time = null;
+        if (configured != null) {
+            try {
+                time = LocalTime.parse(configured.trim());
+            } catch (DateTimeParseException e) {
+                System.err.println("Orario di partenza non valido: " + configured + ", uso l'ora di sistema");
+            }
+        }
+        if (time == null) time = LocalTime.now().withNano(0);
+        System.out.println("Orario di partenza del gioco: " + time);
+        return time;
+    }
+
+    /**
+     * Fa avanzare l'orologio di un passo del loop; da chiamare a ogni update.
+     */
+    public void advance(long nanos) {
+        elapsed = (elapsed + nanos) % NANOS_PER_DAY;
+    }
+
+    public LocalTime getTime() {
+        return start.plusNanos(elapsed);
+    }
+}
@@ -0,0 +1,196 @@
+package engine;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Loop di gioco a passo fisso.
+ * La logica (update) gira sempre alla stessa frequenza, il render ha una frequenza
+ * propria. Tra un evento e l'altro il thread viene parcheggiato con LockSupport.parkNanos
+ * e fa spin solo nell'ultimo millisecondo, così non tiene occupato un core al 100%.
+ * <p>
+ * Il loop possiede un unico thread (un executor a thread singolo) e ha un ciclo di vita
+ * esplicito: start, pause, resume e stop. Chiamare start più volte non crea nuovi thread.
+ * Ogni avvio ha un suo numero di esecuzione: dopo stop e start il giro vecchio, anche se non
+ * ha ancora visto lo stop, si accorge di non essere più quello corrente ed esce.
+ * <p>
+ * Con la proprietà di sistema {@code pokemon.frameStatsSeconds} il loop stampa le {@link FrameStats}
+ * ogni N secondi (di default il resoconto è spento).
+ */
+public class GameLoop {
+
+    // Sotto questa soglia parkNanos non è abbastanza preciso: meglio un breve spin
+    private static final long SPIN_THRESHOLD = 1_000_000L;
+    // Numero massimo di update recuperati in un singolo giro dopo un rallentamento
+    private static final int MAX_UPDATES_PER_FRAME = 5;
+
+    private final Runnable updater;
+    private final Runnable renderer;
+    private final long updateInterval;
+    private final long renderInterval;
+    private final FrameStats stats = new FrameStats(120);
+    private final long reportInterval = Long.getLong("pokemon.frameStatsSeconds", 0) * 1_000_000_000L; // 0: nessun resoconto
+
+    private ExecutorService executor;
+    private volatile Thread loopThread;
+    private volatile boolean running = false;
+    private volatile int currentRun = 0; // Incrementato da start e stop
+    private volatile boolean paused = false;
+
+    /**
+     * @param updater logica di gioco, chiamata a frequenza fissa.
+     * @param renderer disegno, chiamato al massimo renderRate volte al secondo.
+     * @param updateRate update al secondo.
+     * @param renderRate frame al secondo.
+     */
+    public GameLoop(Runnable updater, Runnable renderer, int updateRate, int renderRate) {
+        this.updater = updater;
+        this.renderer = renderer;
+        this.updateInterval = 1_000_000_000L / updateRate;
+        this.renderInterval = 1_000_000_000L / renderRate;
+    }
+
+    /**
+     * Avvia il loop sul suo thread dedicato. Se il loop è già attivo non fa nulla.
+     */
+    public synchronized void start() {
+        if (executor != null) return;
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "GameLoop");
+            t.setDaemon(true);
+            return t;
+        });
+        running = true;
+        paused = false;
+        int run = ++currentRun;
+        executor.execute(() -> run(run));
+    }
+
+    /**
+     * Sospende update e render; il thread resta parcheggiato senza consumare CPU.
+     */
+    public void pause() {
+        paused = true;
+    }
+
+    public void resume() {
+        paused = false;
+        Thread t = loopThread;
+        if (t != null) LockSupport.unpark(t);
+    }
+
+    /**
+     * Ferma definitivamente il loop e rilascia il suo thread.
+     */
+    public synchronized void stop() {
+        running = false;
+        currentRun++;
+        Thread t = loopThread;
+        if (t != null) LockSupport.unpark(t);
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    private void run(int run) {
+        Thread self = Thread.currentThread();
+        synchronized (this) {
+            if (run != currentRun) return; // Fermato prima ancora di partire
+            loopThread = self;
+        }
+        long previous = System.nanoTime();
+        long lastRender = previous;
+        boolean firstFrame = true;
+        long nextRender = previous;
+        long accumulator = 0;
+        long nextReport = previous + reportInterval;
+
+        while (isCurrent(run)) {
+            if (paused) {
+                waitWhilePaused(run);
+                // Alla ripresa ripartiamo da zero, senza recuperare il tempo passato in pausa
+                previous = System.nanoTime();
+                accumulator = 0;
+                nextRender = previous;
+                firstFrame = true;
+                continue;
+            }
+
+            long now = System.nanoTime();
+            accumulator += now - previous;
+            previous = now;
+
+            int updates = 0;
+            while (accumulator >= updateInterval && updates < MAX_UPDATES_PER_FRAME) {
+                updater.run();
+                accumulator -= updateInterval;
+                updates++;
+            }
+            stats.recordUpdates(updates);
+
+            // Siamo troppo indietro: scartiamo il ritardo invece di inseguirlo all'infinito
+            if (accumulator >= updateInterval) {
+                stats.recordDroppedUpdates(accumulator / updateInterval);
+                accumulator %= updateInterval;
+            }
+
+            if (now >= nextRender) {
+                renderer.run();
+                if (!firstFrame) stats.recordFrame(now - lastRender);
+                firstFrame = false;
+                lastRender = now;
+                nextRender += renderInterval;
+                if (nextRender < now) {
+                    nextRender = now + renderInterval;
+                }
+            }
+
+            if (reportInterval > 0 && now >= nextReport) {
+                System.out.println("GameLoop: " + stats);
+                nextReport = now + reportInterval;
+            }
+
+            long nextUpdate = previous + (updateInterval - accumulator);
+            waitUntil(run, Math.min(nextUpdate, nextRender));
+        }
+        synchronized (this) {
+            // Un nuovo start può aver già registrato il suo thread: non va cancellato
+            if (loopThread == self) loopThread = null;
+        }
+    }
+
+    private boolean isCurrent(int run) {
+        return running && currentRun == run;
+    }
+
+    private void waitWhilePaused(int run) {
+        while (isCurrent(run) && paused) {
+            LockSupport.park(this);
+        }
+    }
+
+    private void waitUntil(int run, long deadline) {
+        long remaining;
+        while (isCurrent(run) && !paused && (remaining = deadline - System.nanoTime()) > 0) {
+            if (remaining > SPIN_THRESHOLD) {
+                LockSupport.parkNanos(remaining - SPIN_THRESHOLD);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    public FrameStats getStats() {
+        return stats;
+    }
+}
@@ -46,6 +46,13 @@ public final class LocalizationManager {
         }
     }
 
+    /**
+     * true se la lingua corrente ha un testo per la chiave, per chi ha un nome di riserva da usare.
+     */
+    public boolean hasString(String key) {
+        return messages.containsKey(key);
+    }
+
     public Locale getCurrentLocale() {
         return currentLocale;
     }
@@ -0,0 +1,82 @@
+package engine;
+
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Generatori di numeri casuali del gioco, uno per sottosistema, tutti derivati da un unico seme.
+ * <p>
+ * Con lo stesso seme ogni sottosistema riceve sempre la stessa sequenza, e i sottosistemi non
+ * si influenzano a vicenda: un incontro in più non cambia i tiri della battaglia. Il seme si
+ * imposta con la proprietà di sistema {@code pokemon.seed} (utile per rigiocare una partita)
+ * altrimenti è casuale.
+ * <p>
+ * Gli stream non sono thread-safe: vanno usati dal thread di gioco. Per lavorare su altri thread
+ * (simulazioni, AI) si prende un generatore indipendente con {@link #split(Stream)}.
+ */
+public final class RandomService {
+
+    public enum Stream {
+        ENCOUNTERS, // Incontri selvatici
+        BATTLE,     // Danni, cattura e altri tiri della battaglia
+        AI          // Scelte degli avversari
+    }
+
+    private static volatile RandomService instance;
+
+    private final long seed;
+    private final SplittableRandom[] streams;
+
+    public RandomService(long seed) {
+        this.seed = seed;
+        SplittableRandom root = new SplittableRandom(seed);
+        Stream[] values = Stream.values();
+        streams = new SplittableRandom[values.length];
+        for (int i = 0; i < values.length; i++) {
+            streams[i] = root.split(); // Sempre nello stesso ordine: ogni stream dipende solo dal seme
+        }
+    }
+
+    public static RandomService getInstance() {
+        RandomService result = instance;
+        if (result == null) {
+            synchronized (RandomService.class) {
+                result = instance;
+                if (result == null) {
+                    result = new RandomService(initialSeed());
+                    instance = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Ricomincia tutti gli stream dal seme indicato (ad esempio all'avvio di un replay).
+     */
+    public static synchronized void reseed(long seed) {
+        instance = new RandomService(seed);
+    }
+
+    private static long initialSeed() {
+        Long configured = Long.getLong("pokemon.seed");
+        long seed = configured != null ? configured : new SplittableRandom().nextLong();
+        System.out.println("Seme dei numeri casuali: " + seed);
+        return seed;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public RandomGenerator get(Stream stream) {
+        return streams[stream.ordinal()];
+    }
+
+    /**
+     * Nuovo generatore indipendente ricavato dallo stream, da usare su un altro thread.
+     */
+    public synchronized SplittableRandom split(Stream stream) {
+        return streams[stream.ordinal()].split();
+    }
+}
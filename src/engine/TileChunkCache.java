@@ -0,0 +1,205 @@
+package engine;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import utils.SpriteLoader;
+import world.WorldChunk;
+import world.WorldMap;
+
+/**
+ * Cache dei layer statici della mappa pre-renderizzati a blocchi.
+ * Ogni chunk contiene CHUNK_SIZE x CHUNK_SIZE tile già scalati, quindi a ogni frame
+ * bastano pochi drawImage grandi al posto di centinaia di drawImage scalati.
+ * Per ogni chunk ci sono due immagini: i layer sotto il giocatore e quelli sopra
+ * (la seconda solo se nel chunk c'è almeno un tile da disegnare sopra).
+ * I chunk meno usati di recente vengono scartati (LRU) e tutto viene ricostruito
+ * solo quando la mappa segnala una modifica dei layer.
+ * Il draw gira sull'EDT: un chunk del mondo non ancora caricato non viene letto qui ma
+ * saltato per questo frame (il loader lo prepara in background) e ricostruito appena è pronto.
+ */
+public class TileChunkCache {
+
+    public static final int CHUNK_SIZE = WorldChunk.SIZE; // Tile per lato: un chunk dell'immagine copre esattamente un chunk del mondo
+    private static final int MAX_CHUNKS = 12;  // 12 chunk da 1024x1024 ARGB, circa 48 MB (il doppio se tutti hanno layer sopra il giocatore)
+
+    private final WorldMap worldMap;
+    private final BufferedImage[][] tiles;
+    private final int tileCols;
+    private final int tilePixels;
+    private final int chunkPixels;
+    private final int[] layersBelow;
+    private final int[] layersAbove;
+
+    private GraphicsConfiguration graphicsConfig;
+    private int cachedLayerVersion;
+
+    // LinkedHashMap in access-order: l'elemento più vecchio è quello usato meno di recente
+    private final Map<Long, ChunkImages> chunks = new LinkedHashMap<>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, ChunkImages> eldest) {
+            if (size() > MAX_CHUNKS) {
+                eldest.getValue().flush();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    public TileChunkCache(WorldMap worldMap, BufferedImage[][] tiles, int tileCols, int tilePixels) {
+        this.worldMap = worldMap;
+        this.tiles = tiles;
+        this.tileCols = tileCols;
+        this.tilePixels = tilePixels;
+        this.chunkPixels = CHUNK_SIZE * tilePixels;
+        this.layersBelow = worldMap.getLayersBelowPlayer();
+        this.layersAbove = worldMap.getLayersAbovePlayer();
+        this.cachedLayerVersion = worldMap.getLayerVersion();
+    }
+
+    public WorldMap getWorldMap() {
+        return worldMap;
+    }
+
+    /**
+     * Imposta la configurazione grafica dello schermo, così i chunk vengono creati
+     * in un formato compatibile (e accelerabile) con quello del display.
+     */
+    public void setGraphicsConfiguration(GraphicsConfiguration graphicsConfig) {
+        if (graphicsConfig != null && graphicsConfig != this.graphicsConfig) {
+            this.graphicsConfig = graphicsConfig;
+            invalidate();
+        }
+    }
+
+    /**
+     * Disegna i layer sotto il giocatore nei chunk che intersecano la vista della telecamera.
+     * Il Graphics2D deve essere già traslato in coordinate mondo.
+     */
+    public void drawBelow(Graphics2D g, Camera camera) {
+        draw(g, camera, false);
+    }
+
+    /**
+     * Disegna i layer sopra il giocatore; da chiamare dopo aver disegnato il giocatore.
+     */
+    public void drawAbove(Graphics2D g, Camera camera) {
+        draw(g, camera, true);
+    }
+
+    private void draw(Graphics2D g, Camera camera, boolean above) {
+        if (above && layersAbove.length == 0) return;
+        int layerVersion = worldMap.getLayerVersion(); // Una sola lettura: una modifica a metà non va persa
+        if (layerVersion != cachedLayerVersion) {
+            invalidate();
+            cachedLayerVersion = layerVersion;
+        }
+
+        // Chunk che contengono il rettangolo di tile visibili della telecamera (già limitato alla mappa)
+        int firstX = camera.getFirstCol() / CHUNK_SIZE;
+        int firstY = camera.getFirstRow() / CHUNK_SIZE;
+        int lastX = Math.floorDiv(camera.getLastCol(), CHUNK_SIZE);
+        int lastY = Math.floorDiv(camera.getLastRow(), CHUNK_SIZE);
+
+        for (int cy = firstY; cy <= lastY; cy++) {
+            for (int cx = firstX; cx <= lastX; cx++) {
+                ChunkImages chunk = getChunk(cx, cy);
+                if (chunk == null) continue;
+                BufferedImage image = above ? chunk.above : chunk.below;
+                if (image != null) {
+                    g.drawImage(image, cx * chunkPixels, cy * chunkPixels, null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Scarta tutti i chunk: verranno ricostruiti al prossimo draw.
+     */
+    public void invalidate() {
+        for (ChunkImages chunk : chunks.values()) {
+            chunk.flush();
+        }
+        chunks.clear();
+    }
+
+    private ChunkImages getChunk(int cx, int cy) {
+        long key = ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+        ChunkImages chunk = chunks.get(key);
+        if (chunk == null) {
+            if (!worldMap.isLoaded(cx * CHUNK_SIZE, cy * CHUNK_SIZE)) return null; // Non ancora in memoria: niente letture bloccanti sull'EDT
+            chunk = new ChunkImages(bakeChunk(cx, cy, layersBelow), bakeChunk(cx, cy, layersAbove));
+            chunks.put(key, chunk);
+        }
+        return chunk;
+    }
+
+    // Disegna i layer indicati in un'immagine; null se nel chunk non c'è nessun tile di quei layer
+    private BufferedImage bakeChunk(int cx, int cy, int[] layers) {
+        if (layers.length == 0) return null;
+        BufferedImage chunk = createImage(chunkPixels, chunkPixels);
+        boolean empty = true;
+        Graphics2D g = chunk.createGraphics();
+        try {
+            int startX = cx * CHUNK_SIZE;
+            int startY = cy * CHUNK_SIZE;
+            int endX = Math.min(worldMap.width, startX + CHUNK_SIZE);
+            int endY = Math.min(worldMap.height, startY + CHUNK_SIZE);
+            for (int y = startY; y < endY; y++) {
+                for (int x = startX; x < endX; x++) {
+                    int px = (x - startX) * tilePixels;
+                    int py = (y - startY) * tilePixels;
+                    for (int layer : layers) {
+                        empty &= !drawTile(g, worldMap.getTile(layer, x, y), px, py);
+                    }
+                }
+            }
+        } finally {
+            g.dispose();
+        }
+        if (empty) {
+            chunk.flush();
+            return null;
+        }
+        return chunk;
+    }
+
+    private boolean drawTile(Graphics2D g, int tileId, int px, int py) {
+        if (tileId > 0) {
+            int id = tileId - 1;
+            int tileX = id % tileCols;
+            int tileY = id / tileCols;
+            g.drawImage(tiles[tileY][tileX], px, py, tilePixels, tilePixels, null);
+            return true;
+        }
+        return false;
+    }
+
+    private BufferedImage createImage(int width, int height) {
+        if (graphicsConfig != null) {
+            return graphicsConfig.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+        }
+        return SpriteLoader.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+    }
+
+    private static final class ChunkImages {
+        final BufferedImage below;
+        final BufferedImage above;
+
+        ChunkImages(BufferedImage below, BufferedImage above) {
+            this.below = below;
+            this.above = above;
+        }
+
+        void flush() {
+            if (below != null) below.flush();
+            if (above != null) above.flush();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package entities;
+
+/**
+ * Curve di crescita: quanta esperienza serve a una specie per raggiungere ogni livello.
+ */
+public enum GrowthRate {
+    FAST, MEDIUM_FAST, MEDIUM_SLOW, SLOW;
+
+    /**
+     * Esperienza totale necessaria per arrivare al livello indicato.
+     */
+    public int experienceFor(int level) {
+        if (level <= 1) return 0;
+        long n3 = (long) level * level * level;
+        long exp = switch (this) {
+            case FAST -> 4 * n3 / 5;
+            case MEDIUM_FAST -> n3;
+            case MEDIUM_SLOW -> 6 * n3 / 5 - 15L * level * level + 100L * level - 140;
+            case SLOW -> 5 * n3 / 4;
+        };
+        return (int) Math.max(0, exp);
+    }
+}
@@ -67,23 +67,41 @@ public class Party {
     
     // Metodi di Salvataggio e Caricamento
 
+    /**
+     * Formato di ogni riga: specie,livello,esperienza,PS attuali,IV,EV,mosse
+     * (IV, EV e mosse sono i valori impacchettati di {@link Pokemon}, in esadecimale).
+     * Le righe del vecchio formato (nome,livello,PS max,PS attuali,attacco,velocità) vengono
+     * ancora lette: delle statistiche salvate si tengono solo livello e PS attuali.
+     */
     public void loadFromFile() {
         this.pokemonList.clear();
+        SpeciesRegistry registry = SpeciesRegistry.getInstance();
         try (BufferedReader reader = new BufferedReader(new FileReader("src/assets/saves/" + this.saveFileName))) {
             String line;
             while ((line = reader.readLine()) != null) {
                 String[] parts = line.split(",");
-                if (parts.length >= 6) {
-                    String name = parts[0];
-                    int level = Integer.parseInt(parts[1]);
-                    int maxHp = Integer.parseInt(parts[2]);
-                    int currentHp = Integer.parseInt(parts[3]);
-                    int attack = Integer.parseInt(parts[4]);
-                    int speed = Integer.parseInt(parts[5]);
-
-                    Pokemon p = new Pokemon(name, level, maxHp, attack, 0, speed); // defense a 0 momentaneamente
-                    p.setCurrentHp(currentHp);
+                if (parts.length < 6) continue;
+                Species species = registry.get(parts[0].trim());
+                if (species == null) {
+                    System.err.println("Specie sconosciuta nel salvataggio: " + parts[0]);
+                    continue;
+                }
+                try {
+                    int level = Integer.parseInt(parts[1].trim());
+                    Pokemon p;
+                    if (parts.length >= 7) {
+                        p = new Pokemon(species, level, Integer.parseUnsignedInt(parts[4].trim(), 16),
+                                Long.parseUnsignedLong(parts[5].trim(), 16));
+                        p.setExperience(Integer.parseInt(parts[2].trim()));
+                        p.setCurrentHp(Integer.parseInt(parts[3].trim()));
+                        p.setPackedMoves(Long.parseUnsignedLong(parts[6].trim(), 16));
+                    } else {
+                        p = new Pokemon(species, level);
+                        p.setCurrentHp(Integer.parseInt(parts[3].trim()));
+                    }
                     addPokemon(p);
+                } catch (NumberFormatException e) {
+                    System.err.println("Riga del salvataggio non valida: " + line);
                 }
             }
             System.out.println("Squadra caricata da: " + this.saveFileName);
@@ -100,10 +118,11 @@ public class Party {
                 String line = String.join(",",
                     p.getName(),
                     String.valueOf(p.getLevel()),
-                    String.valueOf(p.getMaxHp()),
+                    String.valueOf(p.getExperience()),
                     String.valueOf(p.getCurrentHp()),
-                    String.valueOf(p.getAttack()),
-                    String.valueOf(p.getSpeed())
+                    Integer.toHexString(p.getPackedIvs()),
+                    Long.toHexString(p.getPackedEvs()),
+                    Long.toHexString(p.getPackedMoves())
                 );
                 writer.write(line);
                 writer.newLine();
@@ -47,7 +47,7 @@ public class Player {
     }
 
     private void loadSprites() {
-        BufferedImage spriteSheet = SpriteLoader.load("../assets/sprites/player.png");
+        BufferedImage spriteSheet = SpriteLoader.loadCompatible("../assets/sprites/player.png");
         int spriteWidth = spriteSheet.getWidth() / 3;
         int spriteHeight = spriteSheet.getHeight() / 3;
 
@@ -129,11 +129,9 @@ public class Player {
             case SIDE -> 2;
         };
 
-        BufferedImage sprite = sprites[row][currentFrame];
-        if (direction == Direction.SIDE && !facingLeft) {
-            g.drawImage(sprite, px + tileSize * scale, py, -tileSize * scale, tileSize * scale, null);
-        } else {
-            g.drawImage(sprite, px, py, tileSize * scale, tileSize * scale, null);
-        }
+        // Variante già scalata e specchiata: il draw è un blit 1:1
+        boolean flip = direction == Direction.SIDE && !facingLeft;
+        BufferedImage sprite = SpriteLoader.getScaled(sprites[row][currentFrame], tileSize * scale, tileSize * scale, flip);
+        g.drawImage(sprite, px, py, null);
     }
 }
\ No newline at end of file
@@ -1,78 +1,170 @@
 package entities;
 
 import java.awt.image.BufferedImage;
+import java.util.random.RandomGenerator;
+
+/**
+ * Singolo esemplare di Pokémon. I dati della specie (nome, statistiche di base, tipi, sprite)
+ * sono condivisi tramite {@link SpeciesRegistry}: qui restano solo i dati individuali,
+ * in campi primitivi compatti. Le statistiche vengono calcolate dal livello, dagli IV e dagli EV.
+ * <p>
+ * IV ed EV sono impacchettati per statistica nell'ordine di {@link Stat}: 5 bit per IV (0-31)
+ * in un int, 8 bit per EV (0-255) in un long. Le 4 mosse sono id da 16 bit in un long (0 = vuota).
+ */
+public class Pokemon {
 
-import javax.imageio.ImageIO;
+    public static final int MAX_LEVEL = 100;
+    public static final int MAX_IV = 31;
+    public static final int MAX_EV = 252;
+    public static final int MOVE_SLOTS = 4;
+
+    private final short speciesId;
+    private byte level;
+    private short currentHp;
+    private int experience;
+    private final int ivs;
+    private long evs;
+    private long moves;
+
+    public Pokemon(Species species, int level, int ivs, long evs) {
+        this.speciesId = (short) species.id;
+        this.level = (byte) clampLevel(level);
+        this.ivs = ivs;
+        this.evs = evs;
+        this.experience = species.growthRate.experienceFor(this.level);
+        this.currentHp = (short) computeStat(species, Stat.HP);
+    }
 
-public class Pokemon {
-    private String name;
-    private int level;
-    private int maxHp;
-    private int currentHp;
-    private int attack;
-    private int defense;
-    private int speed; // Aggiungo speed per il sistema di turni.
-    private BufferedImage sprite;
-
-    public Pokemon(String name, int level, int maxHp, int attack, int defense, int speed) {
-        this.name = name;
-        this.level = level;
-        this.maxHp = maxHp;
-        this.currentHp = maxHp;
-        this.attack = attack;
-        this.defense = defense;
-        this.speed = speed; 
-    }
-
-
-    private void loadSprite() {
-        try {
-            sprite = ImageIO.read(getClass().getResourceAsStream("/assets/" + name.toLowerCase() + ".png"));
-        } catch (Exception e) {
-            System.err.println("Errore nel caricare lo sprite di " + name + ": " + e.getMessage());
-            sprite = null; // Imposta a null se non riesce a caricare lo sprite
+    public Pokemon(Species species, int level) {
+        this(species, level, 0, 0L);
+    }
+
+    /**
+     * IV casuali (0-31 per ogni statistica) già impacchettati.
+     */
+    public static int randomIvs(RandomGenerator rng) {
+        int packed = 0;
+        for (int i = 0; i < Stat.COUNT; i++) {
+            packed |= rng.nextInt(MAX_IV + 1) << (i * 5);
         }
+        return packed;
+    }
+
+    public Species getSpecies() {
+        return SpeciesRegistry.getInstance().get(speciesId);
+    }
+
+    public int getSpeciesId() {
+        return speciesId;
     }
 
     public BufferedImage getSprite() {
-        if (sprite == null) {
-            loadSprite(); // Carica lo sprite se non è già stato caricato
+        return getSpecies().getSprite();
+    }
+
+    public BufferedImage getSprite(int width, int height) {
+        return getSpecies().getSprite(width, height);
+    }
+
+    public int getIv(Stat stat) {
+        return (ivs >>> (stat.ordinal() * 5)) & 0x1F;
+    }
+
+    public int getPackedIvs() {
+        return ivs;
+    }
+
+    public int getEv(Stat stat) {
+        return (int) (evs >>> (stat.ordinal() * 8)) & 0xFF;
+    }
+
+    public void setEv(Stat stat, int value) {
+        int shift = stat.ordinal() * 8;
+        long clamped = Math.max(0, Math.min(MAX_EV, value));
+        evs = (evs & ~(0xFFL << shift)) | (clamped << shift);
+    }
+
+    public long getPackedEvs() {
+        return evs;
+    }
+
+    public int getMove(int slot) {
+        return (int) (moves >>> (slot * 16)) & 0xFFFF;
+    }
+
+    public void setMove(int slot, int moveId) {
+        int shift = slot * 16;
+        moves = (moves & ~(0xFFFFL << shift)) | ((long) (moveId & 0xFFFF) << shift);
+    }
+
+    /**
+     * Numero di slot di mossa occupati (le mosse si riempiono dal primo slot).
+     */
+    public int getMoveCount() {
+        int count = 0;
+        for (int slot = 0; slot < MOVE_SLOTS; slot++) {
+            if (getMove(slot) != 0) count = slot + 1;
         }
-        return sprite;
+        return count;
+    }
+
+    public long getPackedMoves() {
+        return moves;
+    }
+
+    public void setPackedMoves(long moves) {
+        this.moves = moves;
+    }
+
+    /**
+     * Statistica calcolata con la formula dei giochi originali (senza natura).
+     */
+    public int getStat(Stat stat) {
+        return computeStat(getSpecies(), stat);
+    }
+
+    private int computeStat(Species species, Stat stat) {
+        int base = species.getBaseStat(stat);
+        int iv = (ivs >>> (stat.ordinal() * 5)) & 0x1F;
+        int ev = (int) (evs >>> (stat.ordinal() * 8)) & 0xFF;
+        int value = (2 * base + iv + ev / 4) * level / 100;
+        return stat == Stat.HP ? value + level + 10 : value + 5;
     }
 
     public void takeDamage(int damage) {
-        currentHp -= damage;
-        if (currentHp < 0) currentHp = 0;
+        setCurrentHp(currentHp - damage);
     }
 
     public boolean isFainted() {
         return currentHp <= 0;
     }
 
-    public int calculateDamage(Pokemon enemy) {
-        return Math.max(1, this.attack - enemy.defense);
+    public void setCurrentHp(int hp) {
+        this.currentHp = (short) Math.max(0, Math.min(hp, getMaxHp()));
     }
 
-    public void setCurrentHp(int hp) {
-    this.currentHp = Math.max(0, Math.min(hp, maxHp));
-}
+    public int getExperience() {
+        return experience;
+    }
 
+    public void setExperience(int experience) {
+        this.experience = Math.max(0, experience);
+    }
 
     public String getName() {
-        return name;
+        return getSpecies().name;
     }
 
     public int getSpeed() {
-        return speed;
+        return getStat(Stat.SPEED);
     }
 
     public int getAttack() {
-        return attack;
+        return getStat(Stat.ATTACK);
     }
 
     public int getDefense() {
-        return defense;
+        return getStat(Stat.DEFENSE);
     }
 
     public int getCurrentHp() {
@@ -80,10 +172,14 @@ public class Pokemon {
     }
 
     public int getMaxHp() {
-        return maxHp;
+        return getStat(Stat.HP);
     }
 
     public int getLevel() {
         return level;
     }
+
+    private static int clampLevel(int level) {
+        return Math.max(1, Math.min(MAX_LEVEL, level));
+    }
 }
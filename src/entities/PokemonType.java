@@ -0,0 +1,9 @@
+package entities;
+
+/**
+ * Tipi elementali delle specie e delle mosse.
+ */
+public enum PokemonType {
+    NORMAL, FIRE, WATER, ELECTRIC, GRASS, ICE, FIGHTING, POISON, GROUND,
+    FLYING, PSYCHIC, BUG, ROCK, GHOST, DRAGON, DARK, STEEL, FAIRY
+}
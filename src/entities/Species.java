@@ -0,0 +1,55 @@
+package entities;
+
+import java.awt.image.BufferedImage;
+
+import utils.SpriteCache;
+
+/**
+ * Specie di Pokémon: dati immutabili condivisi da tutti gli esemplari (flyweight).
+ * Le istanze si ottengono da {@link SpeciesRegistry}.
+ */
+public final class Species {
+
+    public final int id;
+    public final String name;
+    public final PokemonType primaryType;
+    public final PokemonType secondaryType; // null se la specie ha un solo tipo
+    public final GrowthRate growthRate;
+    public final String spriteKey;
+    private final int[] baseStats;
+    private final SpriteCache.Handle sprite;
+
+    public Species(int id, String name, PokemonType primaryType, PokemonType secondaryType,
+                   int[] baseStats, GrowthRate growthRate, String spriteKey) {
+        if (baseStats.length != Stat.COUNT) {
+            throw new IllegalArgumentException("Servono " + Stat.COUNT + " statistiche di base per " + name);
+        }
+        this.id = id;
+        this.name = name;
+        this.primaryType = primaryType;
+        this.secondaryType = secondaryType;
+        this.baseStats = baseStats.clone();
+        this.growthRate = growthRate;
+        this.spriteKey = spriteKey;
+        this.sprite = SpriteCache.getInstance().handle(spriteKey);
+    }
+
+    public int getBaseStat(Stat stat) {
+        return baseStats[stat.ordinal()];
+    }
+
+    public boolean hasType(PokemonType type) {
+        return primaryType == type || secondaryType == type;
+    }
+
+    public BufferedImage getSprite() {
+        return sprite.get(); // Caricato dalla cache solo al primo utilizzo
+    }
+
+    /**
+     * Sprite già scalato, tenuto nella cache degli sprite insieme all'originale.
+     */
+    public BufferedImage getSprite(int width, int height) {
+        return sprite.getScaled(width, height, false);
+    }
+}
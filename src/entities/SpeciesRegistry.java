@@ -0,0 +1,95 @@
+package entities;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Elenco immutabile delle specie, letto una sola volta da src/assets/data/species.txt
+ * (o dal file indicato dalla proprietà di sistema {@code pokemon.speciesFile}, utile per
+ * provare modifiche alle statistiche con il simulatore).
+ * Le specie sono in un array indicizzato per id, così i Pokémon possono tenere solo l'id.
+ */
+public final class SpeciesRegistry {
+
+    private static final String FILE_PATH = "src/assets/data/species.txt";
+
+    private static volatile SpeciesRegistry instance;
+
+    private final Species[] byId;
+    private final Map<String, Species> byName;
+    private final List<Species> all;
+
+    private SpeciesRegistry(List<Species> species) {
+        int maxId = 0;
+        for (Species s : species) maxId = Math.max(maxId, s.id);
+        byId = new Species[maxId + 1];
+        Map<String, Species> names = new HashMap<>();
+        for (Species s : species) {
+            byId[s.id] = s;
+            names.put(s.name.toLowerCase(Locale.ROOT), s);
+        }
+        byName = Collections.unmodifiableMap(names);
+        all = List.copyOf(species);
+    }
+
+    public static SpeciesRegistry getInstance() {
+        SpeciesRegistry result = instance;
+        if (result == null) {
+            synchronized (SpeciesRegistry.class) {
+                result = instance;
+                if (result == null) {
+                    result = new SpeciesRegistry(load());
+                    instance = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static List<Species> load() {
+        List<Species> species = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(System.getProperty("pokemon.speciesFile", FILE_PATH)))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] parts = line.split(",", -1);
+                try {
+                    int[] stats = new int[Stat.COUNT];
+                    for (int i = 0; i < Stat.COUNT; i++) {
+                        stats[i] = Integer.parseInt(parts[4 + i].trim());
+                    }
+                    species.add(new Species(Integer.parseInt(parts[0].trim()), parts[1].trim(),
+                            PokemonType.valueOf(parts[2].trim()),
+                            parts[3].isBlank() ? null : PokemonType.valueOf(parts[3].trim()),
+                            stats, GrowthRate.valueOf(parts[10].trim()), parts[11].trim()));
+                } catch (RuntimeException e) {
+                    System.err.println("Specie non valida, riga ignorata: " + line);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Errore nel caricare le specie: " + e.getMessage());
+        }
+        return species;
+    }
+
+    public Species get(int id) {
+        return id >= 0 && id < byId.length ? byId[id] : null;
+    }
+
+    // Ricerca per nome, senza distinzione fra maiuscole e minuscole
+    public Species get(String name) {
+        return byName.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    public List<Species> getAll() {
+        return all;
+    }
+}
@@ -0,0 +1,10 @@
+package entities;
+
+/**
+ * Statistiche di un Pokémon, nell'ordine usato per i valori di base, gli IV e gli EV.
+ */
+public enum Stat {
+    HP, ATTACK, DEFENSE, SP_ATTACK, SP_DEFENSE, SPEED;
+
+    public static final int COUNT = values().length;
+}
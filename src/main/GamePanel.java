@@ -8,52 +8,72 @@ import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.awt.event.KeyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.random.RandomGenerator;
 
 import javax.swing.JPanel;
 
+import battle.BattleAI;
+import battle.BattleAssets;
+import engine.Camera;
+import engine.GameClock;
+import engine.GameLoop;
 import engine.InputHandler;
+import engine.TileChunkCache;
 import engine.LocalizationManager;
+import engine.RandomService;
 import engine.models.ChoiceContext;
 import entities.Player;
 import entities.Pokemon;
+import entities.Species;
+import entities.SpeciesRegistry;
+import ui.states.BattleState;
 import ui.states.ChoiceState;
 import ui.states.IGameState;
 import ui.states.MainMenuState;
 import ui.states.PartyScreenState;
 import ui.states.SettingsMenuState;
 import ui.states.WorldState;
+import world.EncounterTable;
+import world.Encounters;
+import world.TimeOfDay;
+import world.WorldManager;
 import world.WorldMap;
-import battle.BattleManager;
 
-public class GamePanel extends JPanel implements Runnable {
+public class GamePanel extends JPanel {
 
     private static final long serialVersionUID = 1L;
     public static final int TILE_SIZE = 32;
     public static final int SCALE = 2;
     public static final int WIDTH = TILE_SIZE * 16;
     public static final int HEIGHT = TILE_SIZE * 12;
-    public static final int FPS = 60;
+    public static final int FPS = 60;        // Update della logica al secondo
+    public static final int RENDER_FPS = 60; // Frame disegnati al secondo
 
     // --- Componenti di Gioco ---
     private Player player;
-    private WorldMap worldMap;
+    private WorldManager worldManager;
+    private final Encounters encounters = new Encounters();
     private InputHandler input;
-    private Thread gameThread;
+    private GameLoop gameLoop;
 	private GameWindow window;
 
     // --- Gestione Stati ---
     private Map<GameState, IGameState> gameStates;
     private IGameState currentState;
+    private GameState currentStateKey;
 
     // --- Gestione Cooldown ---
     private long lastMenuToggleTime = 0;
     private final long menuToogleCooldown = 200;
 
     // --- Grafica ---
-    private int cameraX = 0, cameraY = 0;
+    private Camera camera;
+    private TileChunkCache chunkCache;
     private BufferedImage tileSet;
     private BufferedImage[][] tiles;
     private int tileCols, tileRows;
@@ -63,10 +83,6 @@ public class GamePanel extends JPanel implements Runnable {
     private long messageSetTime = 0;
     private final long MESSAGE_DISPLAY_DURATION = 2000; // 2 secondi
 
-
-    // --- Stato Battaglia ---
-    private boolean inBattle = false;
-
     public GamePanel(GameWindow window) {
 		this.window = window;
         setPreferredSize(new Dimension(WIDTH * SCALE, HEIGHT * SCALE));
@@ -75,28 +91,35 @@ public class GamePanel extends JPanel implements Runnable {
 
         input = new InputHandler();
         addKeyListener(input);
-        worldMap = new WorldMap(30, 20);
+        worldManager = new WorldManager("src/assets/maps/FirstMap.tmx");
+        camera = new Camera(WIDTH * SCALE, HEIGHT * SCALE, TILE_SIZE * SCALE);
         player = new Player(4, 6, TILE_SIZE);
+        worldManager.getCurrentMap().focusOn(player.x, player.y);
+        SpeciesRegistry.getInstance(); // Le specie si leggono una volta sola, prima della squadra
         player.getParty().loadFromFile(); // Nuova chiamata per caricare
 
         loadGraphics();
+        BattleAssets.preload(); // Le immagini della battaglia si caricano mentre si esplora
+        chunkCache = new TileChunkCache(worldManager.getCurrentMap(), tiles, tileCols, TILE_SIZE * SCALE);
         initializeStates();
         startGameLoop();
+        bindLoopToWindow();
     }
 
     private void initializeStates() {
         gameStates = new EnumMap<>(GameState.class);
-        gameStates.put(GameState.WORLD, new WorldState(player, worldMap));
+        gameStates.put(GameState.WORLD, new WorldState(player, worldManager));
         gameStates.put(GameState.MAIN_MENU, new MainMenuState());
         gameStates.put(GameState.SETTINGS_MENU, new SettingsMenuState());
         gameStates.put(GameState.PARTY_SCREEN, new PartyScreenState(player));
         gameStates.put(GameState.CHOICE_BOX, new ChoiceState()); // Aggiungiamo il nuovo stato
+        gameStates.put(GameState.BATTLE, new BattleState(player));
         
         changeState(GameState.WORLD); // Impostiamo lo stato iniziale
     }
     
     private void loadGraphics() {
-        tileSet = utils.SpriteLoader.load("../assets/sprites/tileset.png");
+        tileSet = utils.SpriteLoader.loadCompatible("../assets/sprites/tileset.png");
         tileCols = tileSet.getWidth() / TILE_SIZE;
         tileRows = tileSet.getHeight() / TILE_SIZE;
         tiles = new BufferedImage[tileRows][tileCols];
@@ -107,32 +130,50 @@ public class GamePanel extends JPanel implements Runnable {
         }
     }
 
+    // --- Ciclo di vita del loop: un solo thread per tutta la partita ---
+
     public void startGameLoop() {
-gameThread = new Thread(this);
-        gameThread.start();
+        if (gameLoop == null) {
+            gameLoop = new GameLoop(this::update, this::repaint, FPS, RENDER_FPS);
+        }
+        gameLoop.start();
     }
 
-    @Override
-    public void run() {
-        double drawInterval = 1_000_000_000.0 / FPS;
-        double delta = 0;
-        long lastTime = System.nanoTime();
-        while (gameThread != null) {
-            long currentTime = System.nanoTime();
-            delta += (currentTime - lastTime) / drawInterval;
-            lastTime = currentTime;
-            if (delta >= 1) {
-                update();
-                repaint();
-                delta--;
-            }
-        }
+    public void pauseGameLoop() {
+        if (gameLoop != null) gameLoop.pause();
     }
 
-    private void update() {
+    public void resumeGameLoop() {
+        if (gameLoop != null) gameLoop.resume();
+    }
+
+    public void stopGameLoop() {
+        if (gameLoop != null) gameLoop.stop();
+    }
 
-		if (inBattle) return;
+    // Il loop si sospende quando la finestra è ridotta a icona e si ferma prima che il programma esca
+    private void bindLoopToWindow() {
+        if (window == null) return;
+        window.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowIconified(WindowEvent e) {
+                pauseGameLoop();
+            }
 
+            @Override
+            public void windowDeiconified(WindowEvent e) {
+                resumeGameLoop();
+            }
+
+            @Override
+            public void windowClosing(WindowEvent e) {
+                stopGameLoop();
+            }
+        });
+    }
+
+    private void update() {
+		GameClock.getInstance().advance(1_000_000_000L / FPS); // Passo fisso: il tempo di gioco non dipende dal sistema
 		if (currentState != null) {
 			currentState.update(this);
 		}
@@ -145,7 +186,10 @@ gameThread = new Thread(this);
     }
 
     private void draw(Graphics2D g) {
-        drawWorld(g);
+        // La battaglia copre tutto lo schermo: inutile disegnare il mondo sotto
+        if (currentStateKey != GameState.BATTLE) {
+            drawWorld(g);
+        }
         if (currentState != null) {
             currentState.draw(this, g);
         }
@@ -166,54 +210,73 @@ gameThread = new Thread(this);
     }
 
     private void drawWorld(Graphics2D g) {
-        cameraX = player.x * TILE_SIZE * SCALE - (WIDTH * SCALE) / 2 + (TILE_SIZE * SCALE) / 2;
-        cameraY = player.y * TILE_SIZE * SCALE - (HEIGHT * SCALE) / 2 + (TILE_SIZE * SCALE) / 2;
-        g.translate(-cameraX, -cameraY);
-        for (int y = 0; y < worldMap.height; y++) {
-            for (int x = 0; x < worldMap.width; x++) {
-                drawTile(g, worldMap.getGroundTile(x, y), x, y);
-                drawTile(g, worldMap.getOverlayTile(x, y), x, y);
-            }
+        WorldMap worldMap = worldManager.getCurrentMap();
+        if (chunkCache.getWorldMap() != worldMap) {
+            // Dopo un warp: la nuova mappa ha la sua cache, la vecchia libera le immagini
+            chunkCache.invalidate();
+            chunkCache = new TileChunkCache(worldMap, tiles, tileCols, TILE_SIZE * SCALE);
         }
+        camera.centerOn(player.x, player.y, worldMap.width, worldMap.height);
+        int cameraX = camera.getX();
+        int cameraY = camera.getY();
+        g.translate(-cameraX, -cameraY);
+        // I layer statici sono pre-renderizzati a chunk: pochi blit grandi per frame
+        chunkCache.setGraphicsConfiguration(getGraphicsConfiguration());
+        chunkCache.drawBelow(g, camera);
         player.draw(g, SCALE);
+        chunkCache.drawAbove(g, camera); // Tetti e layer marcati "abovePlayer" coprono il giocatore
         g.translate(cameraX, cameraY);
     }
 
-    private void drawTile(Graphics2D g, int tileId, int x, int y) {
-        if (tileId > 0) {
-            int id = tileId - 1;
-            int tileX = id % tileCols;
-            int tileY = id / tileCols;
-            g.drawImage(tiles[tileY][tileX], x * TILE_SIZE * SCALE, y * TILE_SIZE * SCALE, TILE_SIZE * SCALE, TILE_SIZE * SCALE, null);
-        }
-    }
-
     // --- Metodi Pubblici per la Gestione degli Stati ---
 
 	public void goToBattle(long now) {
 
-		cameraX = player.x * TILE_SIZE * SCALE - WIDTH / 2;
-		cameraY = player.y * TILE_SIZE * SCALE - HEIGHT / 2;
 		player.setLastMoveTime(now);
 
+		WorldMap worldMap = worldManager.getCurrentMap();
 		if (worldMap.isGrassTile(player.x, player.y)) {
 
-			double pokemonEncounterChance = 0.2;
-			if (Math.random() < pokemonEncounterChance) {
-				inBattle = true;
-				Pokemon wildPokemon = new Pokemon("Bulbasaur", 5, 10, 10, 10, 15);
-				Pokemon playerPokemon = player.getParty().getPokemon(0); // Prende il primo Pokémon della squadra del giocatore
-				BattleManager battleManager = new BattleManager(window, this, player);
-				battleManager.startBattle(playerPokemon, wildPokemon);
+			// Specie, livelli e probabilità arrivano dalla tabella della mappa (o della zona d'erba)
+			EncounterTable table = encounters.forTile(worldManager.getCurrentPath(), worldMap, player.x, player.y);
+			RandomGenerator rng = RandomService.getInstance().get(RandomService.Stream.ENCOUNTERS);
+			if (table != null && table.rollEncounter(rng)) {
+				EncounterTable.Encounter encounter = table.sample(rng, TimeOfDay.at(GameClock.getInstance().getTime()));
+				Species species = encounter != null ? SpeciesRegistry.getInstance().get(encounter.species) : null;
+				if (species == null) return;
+				Pokemon wildPokemon = new Pokemon(species, encounter.level, Pokemon.randomIvs(rng), 0L);
+				// Combatte il primo Pokémon non esausto; se sono tutti esausti niente incontro
+				Pokemon playerPokemon = player.getParty().getFirstAvailablePokemon();
+				if (playerPokemon == null) return;
+				startBattle(playerPokemon, wildPokemon);
 
 			}
 		}
 
 	}
 
+	// Entrare in battaglia è un semplice cambio di stato: niente nuovi pannelli né timer
+	public void startBattle(Pokemon playerPokemon, Pokemon enemyPokemon) {
+		((BattleState) gameStates.get(GameState.BATTLE)).configure(playerPokemon, enemyPokemon);
+		resetInput();
+		changeState(GameState.BATTLE);
+	}
+
+	/**
+	 * Battaglia contro un allenatore: la difficoltà è il tempo concesso alla sua IA per ogni turno.
+	 */
+	public void startTrainerBattle(List<Pokemon> trainerTeam, BattleAI.Difficulty difficulty) {
+		Pokemon playerPokemon = player.getParty().getFirstAvailablePokemon();
+		if (playerPokemon == null) return;
+		((BattleState) gameStates.get(GameState.BATTLE)).configure(playerPokemon, trainerTeam, new BattleAI(difficulty));
+		resetInput();
+		changeState(GameState.BATTLE);
+	}
+
     public void changeState(GameState newStateKey) {
         if (currentState != null) currentState.onExit();
         currentState = gameStates.get(newStateKey);
+        currentStateKey = newStateKey;
         if (currentState != null) {
             lastMenuToggleTime = System.currentTimeMillis();
             currentState.onEnter();
@@ -289,7 +352,6 @@ gameThread = new Thread(this);
     public long getLastMenuToggleTime() { return this.lastMenuToggleTime; }
     public long getMenuToggleCooldown() { return this.menuToogleCooldown; }
     public Player getPlayer() { return this.player; }
-    public void setInBattle(boolean inBattle) { this.inBattle = inBattle; }
     
     public void resetInput() {
         this.input.reset();
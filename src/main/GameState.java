@@ -5,5 +5,6 @@ public enum GameState {
     MAIN_MENU,
     SETTINGS_MENU,
     PARTY_SCREEN,
-    CHOICE_BOX
+    CHOICE_BOX,
+    BATTLE
 }
\ No newline at end of file
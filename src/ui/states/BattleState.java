@@ -0,0 +1,456 @@
+package ui.states;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.event.KeyEvent;
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+import battle.Battle;
+import battle.BattleAI;
+import battle.BattleAssets;
+import battle.BattleLog;
+import battle.BattleText;
+import battle.MoveTable;
+import engine.InputHandler;
+import engine.LocalizationManager;
+import engine.RandomService;
+import entities.Player;
+import entities.Pokemon;
+import main.GamePanel;
+import main.GameState;
+import utils.SpriteLoader;
+
+/**
+ * Stato di battaglia: gira nello stesso loop e con lo stesso InputHandler degli altri stati,
+ * quindi entrare in battaglia è un semplice cambio di stato del GamePanel.
+ * <p>
+ * "Attacca" apre il sottomenu delle mosse conosciute; X o ESC torna al menu principale.
+ * Gli eventi di ogni azione compaiono uno alla volta nel riquadro in basso e si scorrono con INVIO:
+ * il log della battaglia fa da coda e il testo di un evento si costruisce solo quando viene mostrato.
+ */
+public class BattleState implements IGameState {
+
+    private static final int SPRITE_SIZE = 250;
+
+    // Chiavi delle voci del menu, tradotte a ogni disegno così seguono la lingua corrente
+    private static final String[] MENU_KEYS = {"battle.menu.attack", "battle.menu.flee", "battle.menu.capture"};
+    private final Player player;
+
+    // Letto anche dall'EDT in draw(): onExit lo azzera dal thread del loop
+    private volatile Battle battle;
+    private long logCursor = 0; // Prossimo evento della battaglia da mostrare
+    private volatile String message; // Evento mostrato nel riquadro, null quando si sceglie un comando
+    private int selected = 0;
+    private boolean choosingMove = false;
+    private int moveSelected = 0;
+    private String endMessage = "";
+    private boolean battleOver = false;
+
+    private long lastNavTime = 0;
+    private final long navCooldown = 150;
+
+    private BattleAssets assets;
+
+    // Animazione di cattura
+    private boolean capturing = false;
+    private int captureStep = 0;
+    private long captureTimer = 0;
+    private boolean hidePokemon = false;
+    private boolean hideEnemyPokemon = false;
+
+    public BattleState(Player player) {
+        this.player = player;
+    }
+
+    /**
+     * Prepara una nuova battaglia. Va chiamato prima di entrare nello stato.
+     */
+    public void configure(Pokemon playerPokemon, Pokemon enemyPokemon) {
+        start(new Battle(playerPokemon, enemyPokemon));
+    }
+
+    /**
+     * Prepara una battaglia contro un allenatore, con le scelte affidate all'IA.
+     */
+    public void configure(Pokemon playerPokemon, List<Pokemon> enemyTeam, BattleAI ai) {
+        Battle trainerBattle = new Battle(playerPokemon, enemyTeam,
+                RandomService.getInstance().get(RandomService.Stream.BATTLE), new BattleLog());
+        trainerBattle.setEnemyAI(ai);
+        start(trainerBattle);
+    }
+
+    private void start(Battle battle) {
+        this.battle = battle;
+        this.logCursor = 0;
+        this.message = null;
+        this.assets = BattleAssets.getInstance(); // Già pronte se il preload è terminato
+        this.selected = 0;
+        this.choosingMove = false;
+        this.moveSelected = 0;
+        this.endMessage = "";
+        this.battleOver = false;
+        this.capturing = false;
+        this.captureStep = 0;
+        this.hidePokemon = false;
+        this.hideEnemyPokemon = false;
+        if (battle.isBattleOver()) {
+            // Nessuno può lottare: si mostra subito il messaggio finale invece di bloccare i comandi
+            this.endMessage = BattleText.unableToBattle(battle);
+            this.battleOver = true;
+        }
+    }
+
+    @Override
+    public void onEnter() {
+        System.out.println("Entrando in BattleState...");
+    }
+
+    @Override
+    public void update(GamePanel panel) {
+        if (battle == null) return;
+
+        InputHandler input = panel.getInput();
+        long now = System.currentTimeMillis();
+
+        boolean confirm = input.isPressed(KeyEvent.VK_ENTER) || input.isPressed(KeyEvent.VK_Z);
+
+        if (message != null) {
+            if (confirm) {
+                input.reset();
+                nextMessage();
+            }
+            return;
+        }
+
+        if (capturing && !battleOver) {
+            updateCapture(now);
+            return;
+        }
+
+        if (battleOver) {
+            // Torniamo al mondo solo dopo che il giocatore ha letto il messaggio
+            if (confirm) {
+                input.reset();
+                returnToWorld(panel);
+            }
+            return;
+        }
+
+        if (choosingMove) {
+            updateMoveMenu(input, now, confirm);
+            return;
+        }
+
+        if (now - lastNavTime > navCooldown) {
+            if (input.isPressed(KeyEvent.VK_DOWN)) {
+                selected = (selected + 1) % MENU_KEYS.length;
+                lastNavTime = now;
+            } else if (input.isPressed(KeyEvent.VK_UP)) {
+                selected = (selected - 1 + MENU_KEYS.length) % MENU_KEYS.length;
+                lastNavTime = now;
+            }
+        }
+
+        if (confirm) {
+            handleSelection(now);
+            input.reset();
+        }
+    }
+
+    private void handleSelection(long now) {
+        if (battle.isBattleOver())
+            return;
+
+        if (selected == 0) { // Attacca: si sceglie la mossa
+            choosingMove = true;
+            moveSelected = 0;
+        } else if (selected == 1) { // Contro un allenatore mostra solo che non si può fuggire
+            battle.flee();
+            nextMessage();
+        } else if (selected == 2 && !battle.isTrainerBattle()) { // I Pokémon degli allenatori non si catturano
+            capturing = true;
+            captureStep = 0;
+            captureTimer = now;
+            hidePokemon = true;
+        }
+    }
+
+    // Sottomenu delle mosse, a griglia 2x2 come gli slot
+    private void updateMoveMenu(InputHandler input, long now, boolean confirm) {
+        int count = Math.max(1, battle.getPlayerPokemon().getMoveCount());
+        if (input.isPressed(KeyEvent.VK_X) || input.isPressed(KeyEvent.VK_ESCAPE)) {
+            choosingMove = false;
+            input.reset();
+            return;
+        }
+
+        if (now - lastNavTime > navCooldown) {
+            int next = moveSelected;
+            if (input.isPressed(KeyEvent.VK_DOWN)) next += 2;
+            else if (input.isPressed(KeyEvent.VK_UP)) next -= 2;
+            else if (input.isPressed(KeyEvent.VK_RIGHT)) next += 1;
+            else if (input.isPressed(KeyEvent.VK_LEFT)) next -= 1;
+            if (next != moveSelected) {
+                lastNavTime = now;
+                if (next >= 0 && next < count) moveSelected = next;
+            }
+        }
+
+        if (confirm) {
+            choosingMove = false;
+            battle.performTurn(moveSelected);
+            nextMessage();
+            input.reset();
+        }
+    }
+
+    // Avanza l'animazione di cattura: lancio, volo della Poké Ball, esito
+    private void updateCapture(long now) {
+        long elapsed = now - captureTimer;
+        switch (captureStep) {
+            case 0 -> {
+                if (elapsed > 600) advanceCaptureStep(now);
+            }
+            case 1 -> {
+                if (elapsed > 500) {
+                    hideEnemyPokemon = true;
+                    advanceCaptureStep(now);
+                }
+            }
+            case 2 -> {
+                if (elapsed > 700) {
+                    resolveCapture();
+                    advanceCaptureStep(now);
+                }
+            }
+            default -> { }
+        }
+    }
+
+    private void resolveCapture() {
+        if (battle.attemptCapture()) {
+            player.getParty().addPokemon(battle.getEnemyPokemon());
+        }
+        nextMessage();
+    }
+
+    // Mostra il prossimo evento del log nel riquadro; a coda vuota si torna ai comandi.
+    // L'evento che chiude la battaglia non passa dal riquadro: diventa subito il messaggio finale
+    private void nextMessage() {
+        BattleLog log = battle.getLog();
+        long i = Math.max(logCursor, log.getStart());
+        if (i >= log.getEnd()) {
+            message = null;
+            battleOver = battle.isBattleOver();
+            return;
+        }
+        String text = BattleText.describe(battle, i);
+        logCursor = i + 1;
+        boolean ends = log.getType(i).endsBattle();
+        if (ends) {
+            endMessage = text;
+        }
+        if (ends && logCursor == log.getEnd() && battle.isBattleOver()) {
+            message = null;
+            battleOver = true;
+        } else {
+            message = text;
+        }
+    }
+
+    private void advanceCaptureStep(long now) {
+        captureStep++;
+        captureTimer = now;
+    }
+
+    private void returnToWorld(GamePanel panel) {
+        saveParty();
+        panel.changeState(GameState.WORLD);
+    }
+
+    private void saveParty() {
+        if (player.getParty().saveToFile()) {
+            System.out.println("Squadra salvata con successo!");
+        }
+    }
+
+    @Override
+    public void draw(GamePanel panel, Graphics2D g) {
+        Battle battle = this.battle; // Una sola lettura: il loop può chiudere la battaglia a metà frame
+        if (battle == null) return;
+
+        int width = panel.getWidth();
+        int height = panel.getHeight();
+
+        drawBackground(g, width, height);
+        drawCaptureAnimation(g, width, height);
+        drawPokemonSprites(g, battle, width, height);
+        drawEnemyInfoBox(g, battle, width);
+        drawPlayerInfoBox(g, battle, height);
+        drawCommandBox(g, battle, width, height);
+        drawEndMessage(g, width, height);
+    }
+
+    private void drawBackground(Graphics2D g, int width, int height) {
+        BufferedImage background = assets.getBackground();
+        if (background != null) {
+            g.drawImage(SpriteLoader.getScaled(background, width, height, false), 0, 0, null);
+        }
+    }
+
+    private void drawCaptureAnimation(Graphics2D g, int width, int height) {
+        if (!capturing || battleOver) return;
+
+        long elapsed = System.currentTimeMillis() - captureTimer;
+        int pokeballX = width - 250;
+        int pokeballY = 250;
+
+        BufferedImage[] trainerThrowSprites = assets.getTrainerThrowSprites();
+        BufferedImage pokeballSprite = assets.getPokeballSprite();
+
+        // Le immagini mancanti (loadOrNull) semplicemente non si disegnano
+        switch (captureStep) {
+            case 0 -> {
+                BufferedImage frame = trainerThrowSprites[(int) (elapsed / 150) % trainerThrowSprites.length];
+                if (frame != null) {
+                    g.drawImage(SpriteLoader.getScaled(frame, SPRITE_SIZE, SPRITE_SIZE, false), 30, height - SPRITE_SIZE, null);
+                }
+            }
+            case 1 -> {
+                if (pokeballSprite != null) {
+                    g.drawImage(SpriteLoader.getScaled(pokeballSprite, 64, 64, false), pokeballX - 50, pokeballY - 100, null);
+                }
+            }
+            case 2 -> {
+                if (pokeballSprite != null) {
+                    g.drawImage(SpriteLoader.getScaled(pokeballSprite, 64, 64, false), pokeballX, pokeballY, null);
+                }
+            }
+            default -> { }
+        }
+    }
+
+    private void drawPokemonSprites(Graphics2D g, Battle battle, int width, int height) {
+        int playerX = 30;
+        int playerY = height - SPRITE_SIZE;
+        int enemyX = width - SPRITE_SIZE - 150;
+        int enemyY = 250;
+
+        if (!capturing || !hidePokemon) {
+            BufferedImage playerSprite = battle.getPlayerPokemon().getSprite(SPRITE_SIZE, SPRITE_SIZE);
+            if (playerSprite != null) {
+                g.drawImage(playerSprite, playerX, playerY, null);
+            }
+        }
+
+        if (!capturing || !hideEnemyPokemon) {
+            BufferedImage enemySprite = battle.getEnemyPokemon().getSprite(SPRITE_SIZE, SPRITE_SIZE);
+            if (enemySprite != null) {
+                g.drawImage(enemySprite, enemyX, enemyY, null);
+            }
+        }
+    }
+
+    private void drawEnemyInfoBox(Graphics2D g, Battle battle, int width) {
+        Pokemon enemy = battle.getEnemyPokemon();
+        int enemyX = width - SPRITE_SIZE - 150;
+        int enemyY = 250;
+
+        int boxHeight = 90;
+        drawInfoBox(g, enemyX, enemyY - boxHeight - 20, 300, boxHeight, enemy.getName(), enemy.getLevel(), enemy.getCurrentHp(), enemy.getMaxHp(), Color.RED);
+    }
+
+    private void drawPlayerInfoBox(Graphics2D g, Battle battle, int height) {
+        Pokemon own = battle.getPlayerPokemon();
+        int playerX = 30;
+        int playerY = height - SPRITE_SIZE;
+
+        int boxHeight = 90;
+        drawInfoBox(g, playerX, playerY - boxHeight - 20, 300, boxHeight, own.getName(), own.getLevel(), own.getCurrentHp(), own.getMaxHp(), Color.GREEN);
+    }
+
+    private void drawInfoBox(Graphics2D g, int x, int y, int width, int height, String name, int level, int currentHp, int maxHp, Color hpColor) {
+        g.setColor(new Color(250, 250, 250));
+        g.fillRoundRect(x, y, width, height, 12, 12);
+        g.setColor(Color.BLACK);
+        g.drawRoundRect(x, y, width, height, 12, 12);
+
+        g.setFont(new Font("Arial", Font.BOLD, 18));
+        g.drawString(name + "  Lv." + level, x + 10, y + 25);
+
+        int maxBarWidth = 220;
+        int hpWidth = (int) ((currentHp / (float) maxHp) * maxBarWidth);
+        g.setColor(hpColor);
+        g.fillRect(x + 10, y + 40, hpWidth, 15);
+        g.setColor(Color.BLACK);
+        g.drawRect(x + 10, y + 40, maxBarWidth, 15);
+    }
+
+    private void drawCommandBox(Graphics2D g, Battle battle, int width, int height) {
+        int boxHeight = 120;
+        int boxY = height - boxHeight;
+
+        g.setColor(new Color(20, 20, 20, 220));
+        g.fillRect(0, boxY, width, boxHeight);
+
+        g.setColor(Color.WHITE);
+        g.setFont(new Font("Arial", Font.BOLD, 24));
+        String message = this.message;
+        if (message != null) {
+            g.drawString(message, 30, boxY + 45);
+            g.setFont(new Font("Arial", Font.PLAIN, 14));
+            g.drawString(LocalizationManager.getInstance().getString("battle.continue"), width - 230, boxY + boxHeight - 15);
+            return;
+        }
+        if (choosingMove) {
+            drawMoveMenu(g, battle, width, boxY);
+            return;
+        }
+        LocalizationManager strings = LocalizationManager.getInstance();
+        g.drawString(strings.getString("battle.chooseAction"), 30, boxY + 30);
+
+        for (int i = 0; i < MENU_KEYS.length; i++) {
+            g.setColor(i == selected ? Color.YELLOW : Color.WHITE);
+            g.drawString((i + 1) + ". " + strings.getString(MENU_KEYS[i]), 50, boxY + 60 + i * 25);
+        }
+    }
+
+    private void drawMoveMenu(Graphics2D g, Battle battle, int width, int boxY) {
+        g.drawString(LocalizationManager.getInstance().getString("battle.chooseMove"), 30, boxY + 30);
+
+        Pokemon own = battle.getPlayerPokemon();
+        MoveTable moves = MoveTable.getInstance();
+        int count = Math.max(1, own.getMoveCount());
+        for (int slot = 0; slot < count; slot++) {
+            int move = own.getMove(slot);
+            String name = moves.isValid(move) ? moves.getName(move) : moves.getName(MoveTable.FALLBACK_MOVE);
+            g.setColor(slot == moveSelected ? Color.YELLOW : Color.WHITE);
+            g.drawString(name, 50 + (slot % 2) * (width / 2), boxY + 65 + (slot / 2) * 30);
+        }
+    }
+
+    private void drawEndMessage(Graphics2D g, int width, int height) {
+        if (!battleOver || endMessage == null) return;
+
+        g.setColor(new Color(0, 0, 0, 200));
+        g.fillRoundRect(80, height / 2 - 60, width - 160, 120, 20, 20);
+
+        g.setColor(Color.WHITE);
+        g.setFont(new Font("Arial", Font.BOLD, 20));
+        FontMetrics fm = g.getFontMetrics();
+        int textWidth = fm.stringWidth(endMessage);
+        g.drawString(endMessage, (width - textWidth) / 2, height / 2 + 5);
+
+        g.setFont(new Font("Arial", Font.PLAIN, 14));
+        g.drawString(LocalizationManager.getInstance().getString("battle.continue"), width / 2 - 100, height / 2 + 30);
+    }
+
+    @Override
+    public void onExit() {
+        this.battle = null;
+        System.out.println("Uscendo da BattleState...");
+    }
+}
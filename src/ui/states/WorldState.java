@@ -8,10 +8,10 @@ import entities.Player;
 import entities.Pokemon;
 import main.GamePanel;
 import main.GameState;
+import world.MapEvent;
+import world.WorldManager;
 import world.WorldMap;
 
-import battle.BattleManager;
-
 
 public class WorldState implements IGameState {
 	
@@ -20,12 +20,17 @@ public class WorldState implements IGameState {
 	private static boolean inBattle = false;
 
     private Player player;
-    private WorldMap worldMap;
+    private WorldManager worldManager;
+    private WorldMap worldMap; // Mappa corrente, cambia quando si attraversa un warp
+    private int playerHandle;  // Voce del giocatore nell'indice spaziale della mappa
+    private MapEvent pendingWarp; // Warp attraversato, in attesa che la mappa di arrivo sia pronta
     
     // Il costruttore riceve gli oggetti del mondo con cui deve interagire.
-    public WorldState(Player player, WorldMap worldMap) {
+    public WorldState(Player player, WorldManager worldManager) {
         this.player = player;
-        this.worldMap = worldMap;
+        this.worldManager = worldManager;
+        this.worldMap = worldManager.getCurrentMap();
+        this.playerHandle = worldMap.getEntities().insert(player, player.x, player.y);
     }
 
     @Override
@@ -33,6 +38,19 @@ public class WorldState implements IGameState {
         long now = System.currentTimeMillis();
         InputHandler input = panel.getInput(); // Otteniamo l'input handler dal GamePanel
 
+        // --- Warp in corso: il giocatore resta fermo finché la mappa di arrivo non è caricata ---
+        if (pendingWarp != null) {
+            WorldMap next = worldManager.pollWarp();
+            if (next != null) {
+                arriveAt(next, pendingWarp);
+                pendingWarp = null;
+            } else if (!worldManager.isWarping()) {
+                pendingWarp = null; // Warp fallito: si resta sulla mappa corrente
+            }
+            player.update();
+            return;
+        }
+
         // --- Gestione Transizione di Stato ---
         // Se premiamo 'X', diciamo al GamePanel di cambiare stato.
         if (input.isPressed(KeyEvent.VK_X) && now - panel.getLastMenuToggleTime() > panel.getMenuToggleCooldown()) {
@@ -66,9 +84,22 @@ public class WorldState implements IGameState {
         
         // La logica di movimento effettiva, che rispetta il cooldown
         if (wantsToMove && (now - player.getLastMoveTime() >= player.getMoveCooldown())) {
-            if (worldMap.isWalkable(player.x + dx, player.y + dy)) {
+            // Il tile di arrivo deve essere calpestabile e non occupato da un'altra entità
+            if (worldMap.isFree(player.x + dx, player.y + dy)) {
                 player.setLastMoveTime(now);
                 player.move(dx, dy);
+                worldMap.getEntities().move(playerHandle, player.x, player.y);
+                worldMap.focusOn(player.x, player.y); // Carica in anticipo i chunk verso cui ci muoviamo
+
+                MapEvent warp = worldManager.findWarp(player.x, player.y);
+                if (warp != null) {
+                    // Il caricamento non blocca il gioco: il cambio mappa avviene in un update successivo
+                    worldManager.beginWarp(warp);
+                    pendingWarp = warp;
+                    player.update();
+                    return; // Sul warp niente incontri
+                }
+                worldManager.update(player.x, player.y); // Prefetch delle mappe dei warp vicini
 				mooved = true;
                 if (worldMap.isGrassTile(player.x, player.y)) { 
                     // Logica per l'incontro con Pokémon selvatici
@@ -85,6 +116,15 @@ public class WorldState implements IGameState {
         player.update();
     }
 
+    // Sposta il giocatore nella mappa di arrivo del warp, già diventata quella corrente
+    private void arriveAt(WorldMap next, MapEvent warp) {
+        worldMap.getEntities().remove(playerHandle);
+        worldMap = next;
+        player.x = WorldManager.getTargetX(warp);
+        player.y = WorldManager.getTargetY(warp);
+        playerHandle = worldMap.getEntities().insert(player, player.x, player.y);
+    }
+
     @Override
     public void draw(GamePanel panel, Graphics2D g) { // Aggiunto il parametro GamePanel
         // Questa classe non disegna nulla direttamente.
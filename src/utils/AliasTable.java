@@ -0,0 +1,70 @@
+package utils;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Estrazione pesata in tempo costante con il metodo degli alias (algoritmo di Vose).
+ * La tabella si costruisce una volta in O(n); ogni estrazione costa un intero casuale,
+ * un double casuale e due letture da array, qualunque sia il numero di elementi.
+ */
+public final class AliasTable {
+
+    private final double[] probability;
+    private final int[] alias;
+
+    /**
+     * @param weights pesi non negativi (non serve che sommino a 1), almeno uno maggiore di zero
+     */
+    public AliasTable(double[] weights) {
+        int n = weights.length;
+        double total = 0;
+        for (double w : weights) {
+            if (w < 0) throw new IllegalArgumentException("Peso negativo: " + w);
+            total += w;
+        }
+        if (n == 0 || total <= 0) throw new IllegalArgumentException("Servono pesi con somma positiva");
+
+        probability = new double[n];
+        alias = new int[n];
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0, largeCount = 0;
+        for (int i = 0; i < n; i++) {
+            scaled[i] = weights[i] * n / total;
+            if (scaled[i] < 1.0) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+        // Ogni colonna "piccola" viene riempita fino a 1 con un pezzo di una colonna "grande"
+        while (smallCount > 0 && largeCount > 0) {
+            int s = small[--smallCount];
+            int l = large[--largeCount];
+            probability[s] = scaled[s];
+            alias[s] = l;
+            scaled[l] = (scaled[l] + scaled[s]) - 1.0;
+            if (scaled[l] < 1.0) {
+                small[smallCount++] = l;
+            } else {
+                large[largeCount++] = l;
+            }
+        }
+        // Quelle rimaste valgono 1 (a meno di errori di arrotondamento)
+        while (largeCount > 0) probability[large[--largeCount]] = 1.0;
+        while (smallCount > 0) probability[small[--smallCount]] = 1.0;
+    }
+
+    public int size() {
+        return probability.length;
+    }
+
+    /**
+     * Indice estratto con probabilità proporzionale al suo peso.
+     */
+    public int sample(RandomGenerator rng) {
+        int column = rng.nextInt(probability.length);
+        return rng.nextDouble() < probability[column] ? column : alias[column];
+    }
+}
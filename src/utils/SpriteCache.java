@@ -0,0 +1,171 @@
+package utils;
+
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cache condivisa degli sprite delle specie (flyweight): ogni immagine viene decodificata
+ * una sola volta, indipendentemente da quanti Pokémon della stessa specie esistono.
+ * Ogni specie tiene solo un {@link Handle}; le immagini usate meno di recente vengono
+ * scartate quando si supera il budget di memoria e ricaricate al bisogno.
+ * <p>
+ * Anche le varianti scalate ({@link Handle#getScaled}) stanno qui, indicizzate per chiave e
+ * dimensione e contate nello stesso budget: sono le prime a essere scartate, perché si rifanno
+ * con un solo ridimensionamento.
+ * <p>
+ * Il budget si imposta con la proprietà di sistema {@code pokemon.spriteCacheMb} (default 32 MB).
+ */
+public final class SpriteCache {
+
+    private static final long DEFAULT_BUDGET_MB = 32;
+
+    private static volatile SpriteCache instance;
+
+    private final long budgetBytes;
+    private long usedBytes = 0;
+
+    // Access-order: in testa c'è lo sprite usato meno di recente
+    private final LinkedHashMap<String, BufferedImage> images = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<ScaledKey, BufferedImage> scaled = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Handle> handles = new HashMap<>();
+    private final Set<String> missing = new HashSet<>();
+
+    private record ScaledKey(String key, int width, int height, boolean flipX) { }
+
+    /**
+     * Riferimento leggero a uno sprite della cache. Un solo Handle per chiave,
+     * tenuto dalla specie e quindi condiviso da tutti i suoi Pokémon.
+     */
+    public static final class Handle {
+        private final String key;
+
+        private Handle(String key) {
+            this.key = key;
+        }
+
+        public BufferedImage get() {
+            return SpriteCache.getInstance().get(key);
+        }
+
+        /**
+         * Lo sprite già scalato (ed eventualmente specchiato), oppure null se la risorsa non esiste.
+         */
+        public BufferedImage getScaled(int width, int height, boolean flipX) {
+            return SpriteCache.getInstance().getScaled(key, width, height, flipX);
+        }
+
+        public String getKey() {
+            return key;
+        }
+    }
+
+    private SpriteCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    public static SpriteCache getInstance() {
+        if (instance == null) {
+            synchronized (SpriteCache.class) {
+                if (instance == null) {
+                    long budgetMb = Long.getLong("pokemon.spriteCacheMb", DEFAULT_BUDGET_MB);
+                    instance = new SpriteCache(budgetMb * 1024 * 1024);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Restituisce l'handle per lo sprite indicato, senza caricare l'immagine.
+     * @param key nome del file in /assets senza estensione (es. "bulbasaur").
+     */
+    public synchronized Handle handle(String key) {
+        return handles.computeIfAbsent(key, Handle::new);
+    }
+
+    /**
+     * Restituisce lo sprite, caricandolo se non è in cache.
+     * @return l'immagine, oppure null se la risorsa non esiste.
+     */
+    public synchronized BufferedImage get(String key) {
+        BufferedImage image = images.get(key);
+        if (image != null || missing.contains(key)) {
+            return image;
+        }
+
+        try {
+            image = SpriteLoader.loadCompatible("/assets/" + key + ".png");
+        } catch (RuntimeException e) {
+            System.err.println("Errore nel caricare lo sprite " + key + ": " + e.getMessage());
+            missing.add(key); // Non riproviamo a ogni frame
+            return null;
+        }
+
+        images.put(key, image);
+        usedBytes += sizeOf(image);
+        evictOverBudget(key);
+        return image;
+    }
+
+    /**
+     * Variante scalata dello sprite, creata dall'originale la prima volta.
+     * @return l'immagine, oppure null se la risorsa non esiste.
+     */
+    public synchronized BufferedImage getScaled(String key, int width, int height, boolean flipX) {
+        ScaledKey scaledKey = new ScaledKey(key, width, height, flipX);
+        BufferedImage image = scaled.get(scaledKey);
+        if (image != null) {
+            return image;
+        }
+
+        BufferedImage source = get(key);
+        if (source == null) {
+            return null;
+        }
+        if (!flipX && source.getWidth() == width && source.getHeight() == height) {
+            return source;
+        }
+        image = SpriteLoader.scale(source, width, height, flipX);
+        scaled.put(scaledKey, image);
+        usedBytes += sizeOf(image);
+        evictOverBudget(key);
+        return image;
+    }
+
+    // Prima le varianti scalate meno recenti, poi gli originali; quello appena usato resta
+    private void evictOverBudget(String keep) {
+        Iterator<Map.Entry<ScaledKey, BufferedImage>> variants = scaled.entrySet().iterator();
+        while (usedBytes > budgetBytes && variants.hasNext()) {
+            Map.Entry<ScaledKey, BufferedImage> eldest = variants.next();
+            if (eldest.getKey().key().equals(keep)) continue;
+            usedBytes -= sizeOf(eldest.getValue());
+            eldest.getValue().flush();
+            variants.remove();
+        }
+        Iterator<Map.Entry<String, BufferedImage>> it = images.entrySet().iterator();
+        while (usedBytes > budgetBytes && it.hasNext()) {
+            Map.Entry<String, BufferedImage> eldest = it.next();
+            if (eldest.getKey().equals(keep)) continue;
+            usedBytes -= sizeOf(eldest.getValue());
+            eldest.getValue().flush();
+            it.remove();
+        }
+    }
+
+    private static long sizeOf(BufferedImage image) {
+        return (long) image.getWidth() * image.getHeight() * Math.max(1, image.getColorModel().getPixelSize() / 8);
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+}
@@ -2,11 +2,24 @@ package utils;
 
 import static javax.imageio.ImageIO.read;
 
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Transparency;
 import java.awt.image.BufferedImage;
 import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 public final class SpriteLoader {
 
+    private record Variant(int width, int height, boolean flipX) { }
+
+    // Varianti scalate per immagine sorgente. La sorgente è tenuta in modo debole: quando nessuno
+    // la usa più (ad esempio uno sprite scartato da SpriteCache) spariscono anche le sue varianti
+    private static final Map<BufferedImage, Map<Variant, BufferedImage>> scaledCache = new WeakHashMap<>();
+
     private SpriteLoader() {
         // Classe utility: costruttore privato per evitare istanziazione
     }
@@ -21,4 +34,90 @@ public final class SpriteLoader {
             throw new RuntimeException("Impossibile caricare lo sprite: " + path, e);
         }
     }
+
+    /**
+     * Carica uno sprite e lo converte subito nel formato dello schermo.
+     */
+    public static BufferedImage loadCompatible(String path) {
+        return toCompatibleImage(load(path));
+    }
+
+    /**
+     * Copia l'immagine in un formato compatibile con la configurazione grafica dello schermo,
+     * così Java2D può disegnarla con blit accelerati invece di convertirla a ogni draw.
+     * In modalità headless restituisce l'immagine originale.
+     */
+    public static BufferedImage toCompatibleImage(BufferedImage image) {
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        if (gc == null || image.getColorModel().equals(gc.getColorModel(image.getTransparency()))) {
+            return image;
+        }
+        BufferedImage compatible = createCompatibleImage(image.getWidth(), image.getHeight(), image.getTransparency());
+        Graphics2D g = compatible.createGraphics();
+        try {
+            g.drawImage(image, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return compatible;
+    }
+
+    /**
+     * Restituisce l'immagine già scalata (ed eventualmente specchiata in orizzontale),
+     * così il draw a ogni frame diventa un blit 1:1 senza ridimensionamento.
+     * Le varianti vengono create la prima volta e poi riutilizzate finché l'immagine sorgente esiste.
+     * Per gli sprite delle specie si usa {@link SpriteCache.Handle#getScaled}, che rientra nel budget della cache.
+     */
+    public static BufferedImage getScaled(BufferedImage image, int width, int height, boolean flipX) {
+        if (!flipX && image.getWidth() == width && image.getHeight() == height) {
+            return image;
+        }
+        Variant variant = new Variant(width, height, flipX);
+        synchronized (scaledCache) {
+            Map<Variant, BufferedImage> variants = scaledCache.computeIfAbsent(image, k -> new HashMap<>(4));
+            BufferedImage scaled = variants.get(variant);
+            if (scaled == null) {
+                scaled = scale(image, width, height, flipX);
+                variants.put(variant, scaled);
+            }
+            return scaled;
+        }
+    }
+
+    /**
+     * Nuova copia dell'immagine scalata (ed eventualmente specchiata), senza cache.
+     */
+    public static BufferedImage scale(BufferedImage image, int width, int height, boolean flipX) {
+        BufferedImage scaled = createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+        Graphics2D g = scaled.createGraphics();
+        try {
+            if (flipX) {
+                g.drawImage(image, width, 0, -width, height, null);
+            } else {
+                g.drawImage(image, 0, 0, width, height, null);
+            }
+        } finally {
+            g.dispose();
+        }
+        return scaled;
+    }
+
+    /**
+     * Crea un'immagine vuota nel formato dello schermo (ARGB in modalità headless).
+     */
+    public static BufferedImage createCompatibleImage(int width, int height, int transparency) {
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        if (gc != null) {
+            return gc.createCompatibleImage(width, height, transparency);
+        }
+        int type = transparency == Transparency.OPAQUE ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+        return new BufferedImage(width, height, type);
+    }
+
+    private static GraphicsConfiguration getGraphicsConfiguration() {
+        if (GraphicsEnvironment.isHeadless()) {
+            return null;
+        }
+        return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+    }
 }
@@ -0,0 +1,20 @@
+package world;
+
+/**
+ * Sorgente dei dati dei chunk per {@link ChunkedWorld} (per esempio una {@link CompiledMap}).
+ * Può essere chiamata da un thread in background.
+ */
+public interface ChunkSource {
+
+    /**
+     * Riempie il chunk con i dati della mappa.
+     */
+    void readChunk(WorldChunk chunk);
+
+    /**
+     * Flag degli attributi del gid (un bit per proprietà booleana dei tileset), 0 se non ne ha.
+     */
+    int getTileFlags(int gid);
+
+    int getLayerCount();
+}
@@ -0,0 +1,185 @@
+package world;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mondo diviso in chunk caricati su richiesta.
+ * Attorno al giocatore vengono tenuti in memoria solo i chunk entro LOAD_RADIUS, caricati
+ * in background da un thread dedicato; quelli oltre EVICT_RADIUS vengono scartati.
+ * La memoria usata non dipende quindi dalla dimensione della mappa, ma solo dal raggio.
+ * <p>
+ * Se un chunk serve prima che il caricamento in background sia finito, viene letto subito
+ * sul thread chiamante (capita solo se il giocatore si muove più veloce del loader).
+ * Chi non può permettersi di aspettare (il rendering sull'EDT) usa prima {@link #isLoaded}.
+ */
+public class ChunkedWorld {
+
+    public static final int LOAD_RADIUS = 2;  // Chunk caricati attorno al giocatore (5x5)
+    public static final int EVICT_RADIUS = 4; // Oltre questa distanza i chunk vengono scartati
+
+    private final ChunkSource source;
+    private final int layerCount;
+    private final ConcurrentHashMap<Long, WorldChunk> chunks = new ConcurrentHashMap<>();
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+    private final ExecutorService loader;
+
+    // Ultimo chunk letto: quasi tutte le query cadono nello stesso chunk, così evitiamo la ricerca
+    private volatile WorldChunk lastChunk;
+    private int centerX = Integer.MIN_VALUE;
+    private int centerY = Integer.MIN_VALUE;
+    private final LongAdder synchronousLoads = new LongAdder(); // Incrementato sia dal game loop sia dall'EDT
+
+    public ChunkedWorld(ChunkSource source) {
+        this.source = source;
+        this.layerCount = source.getLayerCount();
+        this.loader = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "ChunkLoader");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Aggiorna la zona caricata attorno al tile indicato (di solito la posizione del giocatore).
+     * Fa qualcosa solo quando si entra in un chunk diverso.
+     */
+    public void focusOn(int tileX, int tileY) {
+        int cx = tileX >> WorldChunk.SHIFT;
+        int cy = tileY >> WorldChunk.SHIFT;
+        if (cx == centerX && cy == centerY) return;
+        centerX = cx;
+        centerY = cy;
+
+        // computeIfPresent controlla modified sotto lo stesso lock di chunkForWrite:
+        // un chunk appena modificato dall'altro thread non può essere scartato a metà
+        for (Long key : chunks.keySet()) {
+            chunks.computeIfPresent(key, (k, c) -> c.modified
+                    || (Math.abs(c.chunkX - cx) <= EVICT_RADIUS && Math.abs(c.chunkY - cy) <= EVICT_RADIUS) ? c : evict(c));
+        }
+
+        // Dal centro verso l'esterno: i chunk più vicini arrivano per primi
+        for (int r = 0; r <= LOAD_RADIUS; r++) {
+            for (int dy = -r; dy <= r; dy++) {
+                for (int dx = -r; dx <= r; dx++) {
+                    if (Math.max(Math.abs(dx), Math.abs(dy)) == r) {
+                        requestChunk(cx + dx, cy + dy);
+                    }
+                }
+            }
+        }
+    }
+
+    private void requestChunk(int cx, int cy) {
+        Long key = WorldChunk.key(cx, cy);
+        if (chunks.containsKey(key) || !pending.add(key)) return;
+        loader.execute(() -> {
+            try {
+                chunks.putIfAbsent(key, readChunk(cx, cy));
+            } finally {
+                pending.remove(key);
+            }
+        });
+    }
+
+    private static WorldChunk evict(WorldChunk chunk) {
+        chunk.evicted = true;
+        return null;
+    }
+
+    private WorldChunk readChunk(int cx, int cy) {
+        WorldChunk chunk = new WorldChunk(cx, cy, layerCount);
+        source.readChunk(chunk);
+        chunk.updateFlags(source);
+        return chunk;
+    }
+
+    private WorldChunk getChunk(int cx, int cy) {
+        WorldChunk chunk = lastChunk;
+        // Un altro thread può avervi lasciato un chunk già scartato: in quel caso si torna alla mappa
+        if (chunk != null && chunk.chunkX == cx && chunk.chunkY == cy && !chunk.evicted) {
+            return chunk;
+        }
+        Long key = WorldChunk.key(cx, cy);
+        chunk = chunks.get(key);
+        if (chunk == null) {
+            WorldChunk loaded = readChunk(cx, cy);
+            chunk = chunks.putIfAbsent(key, loaded);
+            if (chunk == null) chunk = loaded;
+            synchronousLoads.increment();
+        }
+        lastChunk = chunk;
+        return chunk;
+    }
+
+    /**
+     * Chunk da modificare, preso sempre dalla mappa e mai da lastChunk. Viene segnato come modificato
+     * dentro compute, quindi quando l'edit avviene è registrato e protetto dall'eviction.
+     */
+    private WorldChunk chunkForWrite(int cx, int cy) {
+        WorldChunk chunk = chunks.compute(WorldChunk.key(cx, cy), (k, c) -> {
+            if (c == null) {
+                c = readChunk(cx, cy);
+                synchronousLoads.increment();
+            }
+            c.modified = true;
+            return c;
+        });
+        lastChunk = chunk;
+        return chunk;
+    }
+
+    /**
+     * Dice se il chunk che contiene il tile è già in memoria, senza mai leggerlo.
+     * Se non lo è ne chiede il caricamento in background, così a una prossima chiamata sarà pronto.
+     */
+    public boolean isLoaded(int x, int y) {
+        int cx = x >> WorldChunk.SHIFT;
+        int cy = y >> WorldChunk.SHIFT;
+        if (chunks.containsKey(WorldChunk.key(cx, cy))) return true;
+        requestChunk(cx, cy);
+        return false;
+    }
+
+    public int getTile(int layer, int x, int y) {
+        return getChunk(x >> WorldChunk.SHIFT, y >> WorldChunk.SHIFT).getTile(layer, x & WorldChunk.MASK, y & WorldChunk.MASK);
+    }
+
+    public void setTile(int layer, int x, int y, int gid) {
+        WorldChunk chunk = chunkForWrite(x >> WorldChunk.SHIFT, y >> WorldChunk.SHIFT);
+        chunk.setTile(layer, x & WorldChunk.MASK, y & WorldChunk.MASK, gid);
+        chunk.updateFlags(x & WorldChunk.MASK, y & WorldChunk.MASK, source);
+    }
+
+    /**
+     * Flag degli attributi della cella, già uniti per tutti i layer quando il chunk è stato letto.
+     */
+    public int getFlags(int x, int y) {
+        return getChunk(x >> WorldChunk.SHIFT, y >> WorldChunk.SHIFT).getFlags(x & WorldChunk.MASK, y & WorldChunk.MASK);
+    }
+
+    public void setBlocked(int x, int y, boolean blocked) {
+        WorldChunk chunk = chunkForWrite(x >> WorldChunk.SHIFT, y >> WorldChunk.SHIFT);
+        chunk.setBlocked(x & WorldChunk.MASK, y & WorldChunk.MASK, blocked);
+    }
+
+    public boolean isBlocked(int x, int y) {
+        return getChunk(x >> WorldChunk.SHIFT, y >> WorldChunk.SHIFT).isBlocked(x & WorldChunk.MASK, y & WorldChunk.MASK);
+    }
+
+    public int getLoadedChunkCount() {
+        return chunks.size();
+    }
+
+    // Quante volte un chunk è stato letto sul thread di gioco perché non era ancora pronto
+    public long getSynchronousLoads() {
+        return synchronousLoads.sum();
+    }
+
+    public void shutdown() {
+        loader.shutdownNow();
+    }
+}
@@ -0,0 +1,247 @@
+package world;
+
+import java.awt.Shape;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Collisioni della mappa, ricavate dagli oggetti del gruppo "Collision" di Tiled.
+ * <p>
+ * Ci sono due livelli:
+ * <ul>
+ * <li>un bitset di long con un bit per tile (1 = bloccato), per il movimento a griglia del giocatore;</li>
+ * <li>le forme esatte (rettangoli, ellissi, poligoni, polilinee) in una griglia uniforme,
+ * per i test al pixel di entità che non si muovono a tile interi.</li>
+ * </ul>
+ * Un tile è bloccato se almeno una forma ne copre una parte (toccarne solo il bordo non basta).
+ * I punti non hanno area e non bloccano nulla; un oggetto con la proprietà "collide" a false viene ignorato.
+ * <p>
+ * Le coordinate in pixel sono quelle della mappa caricata, con la cella 0,0 nell'angolo in alto a sinistra
+ * (per le mappe infinite è già tolta l'origine). Dopo la costruzione la classe è immutabile,
+ * quindi può essere interrogata da più thread insieme.
+ */
+public final class CollisionMap {
+
+    public static final String GROUP_NAME = "Collision";
+    private static final int CELL_TILES = 4; // Lato di una cella della griglia, in tile
+
+    public final int width;  // In tile
+    public final int height;
+    public final int tileWidth;
+    public final int tileHeight;
+
+    private final long[] bits;
+    private final Shape[] shapes;
+    private final boolean[] outlines; // true per le polilinee: contano solo i segmenti, non l'area racchiusa
+    private final Rectangle2D[] bounds;
+
+    // Griglia uniforme in formato compatto: le forme della cella c sono cellShapes[cellStart[c] .. cellStart[c+1])
+    private final int gridCols;
+    private final int gridRows;
+    private final int[] cellStart;
+    private final int[] cellShapes;
+
+    private CollisionMap(int width, int height, int tileWidth, int tileHeight,
+                         List<Shape> shapeList, List<Boolean> outlineList, long[] bits) {
+        this.width = width;
+        this.height = height;
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+
+        int count = shapeList.size();
+        shapes = shapeList.toArray(new Shape[0]);
+        outlines = new boolean[count];
+        bounds = new Rectangle2D[count];
+        for (int i = 0; i < count; i++) {
+            outlines[i] = outlineList.get(i);
+            bounds[i] = shapes[i].getBounds2D();
+        }
+
+        gridCols = Math.max(1, (width + CELL_TILES - 1) / CELL_TILES);
+        gridRows = Math.max(1, (height + CELL_TILES - 1) / CELL_TILES);
+        cellStart = new int[gridCols * gridRows + 1];
+        // Due passate: prima si contano le forme per cella, poi si riempie l'array
+        for (int i = 0; i < count; i++) {
+            forEachCell(bounds[i], cell -> cellStart[cell + 1]++);
+        }
+        for (int c = 0; c < gridCols * gridRows; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        cellShapes = new int[cellStart[gridCols * gridRows]];
+        int[] fill = cellStart.clone();
+        for (int i = 0; i < count; i++) {
+            int shape = i;
+            forEachCell(bounds[i], cell -> cellShapes[fill[cell]++] = shape);
+        }
+
+        this.bits = bits != null ? bits : rasterize();
+    }
+
+    /**
+     * Costruisce le collisioni da una mappa appena letta, calcolando anche il bitset dei tile.
+     */
+    public static CollisionMap build(MapData data) {
+        return fromObjects(data.getObjectGroups(), data.width, data.height, data.tileWidth, data.tileHeight,
+                data.originX, data.originY, null);
+    }
+
+    /**
+     * Costruisce le collisioni da una mappa compilata: il bitset dei tile è già nel file.
+     */
+    public static CollisionMap load(CompiledMap map) {
+        long[] bits = new long[map.getCollisionBits().limit()];
+        map.getCollisionBits().get(0, bits);
+        return fromObjects(map.readObjectGroups(), map.width, map.height, map.tileWidth, map.tileHeight,
+                map.originX, map.originY, bits);
+    }
+
+    private static CollisionMap fromObjects(List<MapData.ObjectGroup> groups, int width, int height,
+                                            int tileWidth, int tileHeight, int originX, int originY, long[] bits) {
+        List<Shape> shapes = new ArrayList<>();
+        List<Boolean> outlines = new ArrayList<>();
+        // Gli oggetti sono in pixel della mappa Tiled: li spostiamo nel sistema con la cella 0,0 in alto a sinistra
+        float offsetX = (float) originX * tileWidth;
+        float offsetY = (float) originY * tileHeight;
+
+        for (MapData.ObjectGroup group : groups) {
+            if (!GROUP_NAME.equals(group.name)) continue;
+            for (MapData.MapObject obj : group.getObjects()) {
+                if ("false".equals(obj.getProperties().get("collide"))) continue;
+                Shape shape = toShape(obj, obj.x - offsetX, obj.y - offsetY);
+                if (shape != null) {
+                    shapes.add(shape);
+                    outlines.add(obj.getShape() == MapData.Shape.POLYLINE);
+                }
+            }
+        }
+        return new CollisionMap(width, height, tileWidth, tileHeight, shapes, outlines, bits);
+    }
+
+    private static Shape toShape(MapData.MapObject obj, float x, float y) {
+        switch (obj.getShape()) {
+            case RECTANGLE:
+                return obj.width > 0 && obj.height > 0 ? new Rectangle2D.Float(x, y, obj.width, obj.height) : null;
+            case ELLIPSE:
+                return obj.width > 0 && obj.height > 0 ? new Ellipse2D.Float(x, y, obj.width, obj.height) : null;
+            case POLYGON:
+            case POLYLINE:
+                float[] points = obj.getPoints();
+                if (points == null || points.length < 4) return null;
+                Path2D.Float path = new Path2D.Float();
+                path.moveTo(x + points[0], y + points[1]);
+                for (int i = 2; i + 1 < points.length; i += 2) {
+                    path.lineTo(x + points[i], y + points[i + 1]);
+                }
+                if (obj.getShape() == MapData.Shape.POLYGON) path.closePath();
+                return path;
+            default:
+                return null; // Punti: nessuna area
+        }
+    }
+
+    // Calcola il bitset dei tile a partire dalle forme esatte
+    private long[] rasterize() {
+        long[] result = new long[(width * height + 63) >>> 6];
+        for (int i = 0; i < shapes.length; i++) {
+            Rectangle2D b = bounds[i];
+            int startX = Math.max(0, (int) Math.floor(b.getMinX() / tileWidth));
+            int startY = Math.max(0, (int) Math.floor(b.getMinY() / tileHeight));
+            int endX = Math.min(width - 1, (int) Math.floor(b.getMaxX() / tileWidth));
+            int endY = Math.min(height - 1, (int) Math.floor(b.getMaxY() / tileHeight));
+            for (int ty = startY; ty <= endY; ty++) {
+                for (int tx = startX; tx <= endX; tx++) {
+                    if (intersects(i, (double) tx * tileWidth, (double) ty * tileHeight, tileWidth, tileHeight)) {
+                        int bit = ty * width + tx;
+                        result[bit >>> 6] |= 1L << (bit & 63);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Controllo a livello di tile: una lettura nel bitset. Fuori dalla mappa è sempre bloccato.
+     */
+    public boolean isBlocked(int tileX, int tileY) {
+        if (tileX < 0 || tileX >= width || tileY < 0 || tileY >= height) return true;
+        int i = tileY * width + tileX;
+        return (bits[i >>> 6] & (1L << (i & 63))) != 0;
+    }
+
+    /**
+     * Controllo esatto: true se il rettangolo (in pixel) tocca una forma di collisione o esce dalla mappa.
+     * Vengono esaminate solo le forme registrate nelle celle della griglia coperte dal rettangolo.
+     */
+    public boolean collides(double x, double y, double w, double h) {
+        if (x < 0 || y < 0 || x + w > (double) width * tileWidth || y + h > (double) height * tileHeight) {
+            return true;
+        }
+        int firstCol = cellColumn(x);
+        int lastCol = cellColumn(x + w);
+        int firstRow = cellRow(y);
+        int lastRow = cellRow(y + h);
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int col = firstCol; col <= lastCol; col++) {
+                int cell = row * gridCols + col;
+                for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                    int shape = cellShapes[k];
+                    // Una forma su più celle può essere controllata più volte: è innocuo
+                    if (bounds[shape].intersects(x, y, w, h) && intersects(shape, x, y, w, h)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean intersects(int shape, double x, double y, double w, double h) {
+        if (!outlines[shape]) {
+            return shapes[shape].intersects(x, y, w, h);
+        }
+        // Polilinea: conta solo se il rettangolo taglia uno dei segmenti
+        Rectangle2D.Double box = new Rectangle2D.Double(x, y, w, h);
+        double[] coords = new double[6];
+        double lastX = 0, lastY = 0;
+        for (PathIterator it = shapes[shape].getPathIterator(null); !it.isDone(); it.next()) {
+            int type = it.currentSegment(coords);
+            if (type == PathIterator.SEG_LINETO && box.intersectsLine(lastX, lastY, coords[0], coords[1])) {
+                return true;
+            }
+            lastX = coords[0];
+            lastY = coords[1];
+        }
+        return false;
+    }
+
+    public int getShapeCount() {
+        return shapes.length;
+    }
+
+    // Bitset dei tile, nel formato scritto da MapCompiler
+    long[] getBits() {
+        return bits;
+    }
+
+    private int cellColumn(double px) {
+        return Math.max(0, Math.min(gridCols - 1, (int) Math.floor(px / (CELL_TILES * tileWidth))));
+    }
+
+    private int cellRow(double py) {
+        return Math.max(0, Math.min(gridRows - 1, (int) Math.floor(py / (CELL_TILES * tileHeight))));
+    }
+
+    private void forEachCell(Rectangle2D b, IntConsumer action) {
+        for (int row = cellRow(b.getMinY()); row <= cellRow(b.getMaxY()); row++) {
+            for (int col = cellColumn(b.getMinX()); col <= cellColumn(b.getMaxX()); col++) {
+                action.accept(row * gridCols + col);
+            }
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package world;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mappa nel formato binario prodotto da {@link MapCompiler}, aperta con un FileChannel mappato in memoria.
+ * I layer, il bitset delle collisioni e la tabella degli attributi sono viste dirette sul file:
+ * niente parsing e niente copie, e la page cache del sistema operativo è condivisa fra
+ * più processi del gioco che aprono la stessa mappa.
+ * <p>
+ * La mappatura è in sola lettura: chi deve modificare un layer in gioco se ne fa prima una copia.
+ * <p>
+ * Gli offset del file sono long e ogni layer è mappato a parte, così il file può superare i 2 GB;
+ * il limite di un buffer Java vale solo per il singolo layer e per i metadati (collisioni, attributi, oggetti).
+ */
+public final class CompiledMap implements ChunkSource {
+
+    public static final int MAGIC = 0x504B4D50; // "PKMP"
+    public static final int VERSION = 4;
+    // 11 int + 6 offset long
+    static final int HEADER_SIZE = 11 * Integer.BYTES + 6 * Long.BYTES;
+
+    // Flag dei layer
+    public static final int LAYER_VISIBLE = 1;
+    public static final int LAYER_ABOVE_PLAYER = 2;
+
+    public final int width;
+    public final int height;
+    public final int tileWidth;
+    public final int tileHeight;
+    public final int originX;
+    public final int originY;
+
+    private final File baseDir;
+    private final ByteBuffer metadata; // Dalla sezione delle collisioni alla fine del file
+    private final String[] layerNames;
+    private final IntBuffer[] layers;
+    private final byte[] layerFlags;
+    private final LongBuffer collisionBits;
+    private final String[] attributeNames;
+    private final ShortBuffer tileFlags;
+    private final int objectsOffset;
+    private final int dependenciesOffset;
+
+    private CompiledMap(FileChannel channel, File baseDir) throws IOException {
+        this.baseDir = baseDir;
+
+        ByteBuffer buffer = map(channel, 0, HEADER_SIZE);
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("File mappa non valido o di una versione diversa");
+        }
+        width = buffer.getInt(8);
+        height = buffer.getInt(12);
+        tileWidth = buffer.getInt(16);
+        tileHeight = buffer.getInt(20);
+        originX = buffer.getInt(24);
+        originY = buffer.getInt(28);
+        int layerCount = buffer.getInt(32);
+        int attributeCount = buffer.getInt(36);
+        int gidCount = buffer.getInt(40);
+        long layerTableOffset = buffer.getLong(44);
+        long tileDataOffset = buffer.getLong(52);
+        long collisionOffset = buffer.getLong(60);
+        long attributesOffset = buffer.getLong(68);
+        long objectsOffset = buffer.getLong(76);
+        long dependenciesOffset = buffer.getLong(84);
+
+        ByteBuffer in = map(channel, layerTableOffset, tileDataOffset - layerTableOffset);
+        layerNames = new String[layerCount];
+        layers = new IntBuffer[layerCount];
+        layerFlags = new byte[layerCount];
+        for (int i = 0; i < layerCount; i++) {
+            layerNames[i] = readUTF(in);
+            int layerWidth = in.getInt();
+            int layerHeight = in.getInt();
+            long dataOffset = tileDataOffset + in.getLong();
+            layerFlags[i] = in.get();
+            layers[i] = map(channel, dataOffset, (long) layerWidth * layerHeight * Integer.BYTES).asIntBuffer();
+        }
+
+        // Le sezioni dopo i gid sono piccole: una sola mappatura, con offset relativi al suo inizio
+        metadata = map(channel, collisionOffset, channel.size() - collisionOffset);
+        this.objectsOffset = relative(objectsOffset, collisionOffset);
+        this.dependenciesOffset = relative(dependenciesOffset, collisionOffset);
+        collisionBits = metadata.slice(0, (int) (((long) width * height + 63) >>> 6) * Long.BYTES).asLongBuffer();
+
+        in = metadata.duplicate().position(relative(attributesOffset, collisionOffset));
+        attributeNames = new String[attributeCount];
+        for (int i = 0; i < attributeCount; i++) {
+            attributeNames[i] = readUTF(in);
+        }
+        int flagsOffset = (in.position() + 7) & ~7;
+        tileFlags = metadata.slice(flagsOffset, gidCount * Short.BYTES).asShortBuffer();
+    }
+
+    // Mappatura di una sezione del file, che da sola deve stare in un buffer (al massimo 2 GB)
+    private static ByteBuffer map(FileChannel channel, long offset, long length) throws IOException {
+        if (offset < 0 || length < 0 || offset + length > channel.size()) {
+            throw new IOException("Sezione fuori dal file: offset " + offset + ", lunghezza " + length);
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Sezione troppo grande per essere mappata: " + length + " byte");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+    }
+
+    private static int relative(long offset, long base) throws IOException {
+        if (offset < base || offset - base > Integer.MAX_VALUE) {
+            throw new IOException("Offset di sezione non valido: " + offset);
+        }
+        return (int) (offset - base);
+    }
+
+    /**
+     * Apre un file già compilato che si trova accanto ai suoi sorgenti.
+     */
+    public static CompiledMap open(Path file) throws IOException {
+        return open(file, file.toAbsolutePath().getParent().toFile());
+    }
+
+    /**
+     * Apre un file già compilato; {@code sourceDir} è la cartella del TMX, da cui si controllano le dipendenze.
+     */
+    public static CompiledMap open(Path file, File sourceDir) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // Le mappature restano valide anche dopo la chiusura del canale
+            return new CompiledMap(channel, sourceDir);
+        }
+    }
+
+    /**
+     * Apre la versione compilata della mappa TMX. Se manca o se il TMX/TSX è stato modificato
+     * dopo la compilazione, la ricompila al volo e la salva per le volte successive: accanto al TMX
+     * se la cartella è scrivibile, altrimenti nella cache dell'utente (proprietà {@code pokemon.mapCacheDir},
+     * default ~/.pokemon/maps). Se non si può scrivere da nessuna parte usa un file temporaneo.
+     * <p>
+     * Il file nuovo viene scritto a parte e poi spostato al posto di quello vecchio: se lo spostamento
+     * non riesce (su Windows un file mappato non si può sostituire) si passa alla posizione successiva.
+     */
+    public static CompiledMap loadOrCompile(String tmxPath) {
+        File tmxFile = new File(tmxPath);
+        File sourceDir = tmxFile.getAbsoluteFile().getParentFile();
+        List<Path> candidates = List.of(MapCompiler.defaultOutput(tmxFile), cacheOutput(tmxFile));
+
+        for (Path compiled : candidates) {
+            if (!Files.exists(compiled)) continue;
+            try {
+                CompiledMap map = open(compiled, sourceDir);
+                if (map.isUpToDate()) {
+                    return map;
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Mappa compilata non valida, la ricompilo: " + compiled + " (" + e.getMessage() + ")");
+            }
+        }
+
+        for (Path compiled : candidates) {
+            try {
+                MapCompiler.compile(tmxFile, compiled);
+                return open(compiled, sourceDir);
+            } catch (IOException e) {
+                System.err.println("Impossibile salvare la mappa compilata in " + compiled + ": " + e.getMessage());
+            }
+        }
+
+        try {
+            Path temporary = Files.createTempFile(tmxFile.getName(), MapCompiler.EXTENSION);
+            temporary.toFile().deleteOnExit();
+            MapCompiler.compile(tmxFile, temporary);
+            return open(temporary, sourceDir);
+        } catch (IOException e) {
+            throw new RuntimeException("Impossibile caricare la mappa: " + tmxPath, e);
+        }
+    }
+
+    // File compilato nella cache dell'utente; il percorso assoluto del TMX distingue mappe con lo stesso nome
+    private static Path cacheOutput(File tmxFile) {
+        String dir = System.getProperty("pokemon.mapCacheDir",
+                System.getProperty("user.home") + File.separator + ".pokemon" + File.separator + "maps");
+        String name = MapCompiler.defaultOutput(tmxFile).getFileName().toString();
+        String hash = Integer.toHexString(tmxFile.getAbsolutePath().hashCode());
+        return Path.of(dir, hash + "-" + name);
+    }
+
+    /**
+     * Controlla che i file sorgente non siano cambiati dopo la compilazione.
+     */
+    public boolean isUpToDate() {
+        ByteBuffer in = metadata.duplicate().position(dependenciesOffset);
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            File source = new File(baseDir, readUTF(in));
+            long modified = in.getLong();
+            if (!source.exists() || source.lastModified() != modified) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Vista in sola lettura sui gid del layer (riga per riga), oppure null se il layer non esiste.
+     * Usare solo get assoluti: la posizione del buffer è condivisa.
+     */
+    public IntBuffer getLayer(String name) {
+        for (int i = 0; i < layerNames.length; i++) {
+            if (layerNames[i].equals(name)) return layers[i];
+        }
+        return null;
+    }
+
+    public String[] getLayerNames() {
+        return layerNames.clone();
+    }
+
+    /**
+     * Flag del layer (LAYER_VISIBLE, LAYER_ABOVE_PLAYER); i layer sono già in ordine di disegno.
+     */
+    public int getLayerFlags(int layer) {
+        return layerFlags[layer];
+    }
+
+    @Override
+    public int getLayerCount() {
+        return layerNames.length;
+    }
+
+    /**
+     * Copia nel chunk la porzione di mappa che gli corrisponde (layer e collisioni).
+     * Le celle fuori dalla mappa restano vuote e bloccate.
+     */
+    @Override
+    public void readChunk(WorldChunk chunk) {
+        int size = WorldChunk.SIZE;
+        int startX = chunk.chunkX * size;
+        int startY = chunk.chunkY * size;
+        int fromX = Math.max(0, startX);
+        int toX = Math.min(width, startX + size);
+
+        for (int row = 0; row < size; row++) {
+            int y = startY + row;
+            boolean rowInside = y >= 0 && y < height && fromX < toX;
+            for (int l = 0; l < layers.length && l < chunk.layers.length; l++) {
+                if (rowInside) {
+                    layers[l].get(y * width + fromX, chunk.layers[l], row * size + (fromX - startX), toX - fromX);
+                }
+            }
+            for (int col = 0; col < size; col++) {
+                chunk.setBlocked(col, row, isBlocked(startX + col, y));
+            }
+        }
+    }
+
+    public boolean isBlocked(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) return true;
+        int i = y * width + x;
+        return (collisionBits.get(i >>> 6) & (1L << (i & 63))) != 0;
+    }
+
+    public LongBuffer getCollisionBits() {
+        return collisionBits;
+    }
+
+    /**
+     * Nomi delle proprietà booleane dei tile: l'indice è il bit corrispondente nei flag.
+     */
+    public String[] getAttributeNames() {
+        return attributeNames.clone();
+    }
+
+    @Override
+    public int getTileFlags(int gid) {
+        if (gid < 0 || gid >= tileFlags.limit()) return 0;
+        return tileFlags.get(gid) & 0xFFFF;
+    }
+
+    public int getGidCount() {
+        return tileFlags.limit();
+    }
+
+    /**
+     * Decodifica gli object group. Gli oggetti sono pochi e servono solo al caricamento,
+     * quindi vengono letti su richiesta invece di restare in memoria.
+     */
+    public List<MapData.ObjectGroup> readObjectGroups() {
+        ByteBuffer in = metadata.duplicate().position(objectsOffset);
+        int groupCount = in.getInt();
+        List<MapData.ObjectGroup> groups = new ArrayList<>(groupCount);
+        for (int g = 0; g < groupCount; g++) {
+            MapData.ObjectGroup group = new MapData.ObjectGroup(in.getInt(), readString(in));
+            readProperties(in, group.properties);
+            int objectCount = in.getInt();
+            for (int o = 0; o < objectCount; o++) {
+                MapData.MapObject obj = new MapData.MapObject(in.getInt(), readString(in), readString(in),
+                        in.getFloat(), in.getFloat(), in.getFloat(), in.getFloat());
+                obj.shape = MapData.Shape.values()[in.get()];
+                int pointCount = in.getInt();
+                if (pointCount > 0) {
+                    obj.points = new float[pointCount];
+                    for (int p = 0; p < pointCount; p++) obj.points[p] = in.getFloat();
+                }
+                readProperties(in, obj.properties);
+                group.objects.add(obj);
+            }
+            groups.add(group);
+        }
+        return groups;
+    }
+
+    private static void readProperties(ByteBuffer in, Map<String, String> target) {
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            target.put(readString(in), readString(in));
+        }
+    }
+
+    private static String readString(ByteBuffer in) {
+        return in.get() != 0 ? readUTF(in) : null;
+    }
+
+    // Formato di DataOutputStream.writeUTF: lunghezza su 2 byte + UTF-8 modificato
+    // (identico a UTF-8 per i nomi usati nelle mappe)
+    private static String readUTF(ByteBuffer in) {
+        int length = in.getShort() & 0xFFFF;
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
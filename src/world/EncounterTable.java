@@ -0,0 +1,139 @@
+package world;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.random.RandomGenerator;
+
+import utils.AliasTable;
+
+/**
+ * Tabella degli incontri selvatici di una mappa o di una zona d'erba, letta da un file di testo:
+ * <pre>
+ * rate,0.2
+ * specie,livello minimo,livello massimo,peso[,morning|day|night]
+ * </pre>
+ * Le righe vuote e quelle che iniziano con # vengono ignorate; una voce senza fascia oraria vale sempre.
+ * Per ogni fascia oraria viene preparata una {@link AliasTable}, quindi scegliere la specie
+ * costa sempre uguale, comunque sia lunga la tabella.
+ */
+public class EncounterTable {
+
+    public static final double DEFAULT_RATE = 0.2;
+
+    public final String name;
+    private final double rate;
+    private final Entry[][] entriesByTime;
+    private final AliasTable[] samplersByTime; // null se in quella fascia non c'è nessuna voce
+
+    /**
+     * Voce della tabella: specie con intervallo di livelli e peso relativo.
+     */
+    public static class Entry {
+        public final String species;
+        public final int minLevel;
+        public final int maxLevel;
+        public final double weight;
+        public final TimeOfDay time; // null = tutte le fasce
+
+        public Entry(String species, int minLevel, int maxLevel, double weight, TimeOfDay time) {
+            this.species = species;
+            this.minLevel = minLevel;
+            this.maxLevel = Math.max(minLevel, maxLevel);
+            this.weight = weight;
+            this.time = time;
+        }
+    }
+
+    /**
+     * Risultato di un'estrazione: specie e livello del Pokémon selvatico.
+     */
+    public static class Encounter {
+        public final String species;
+        public final int level;
+
+        public Encounter(String species, int level) {
+            this.species = species;
+            this.level = level;
+        }
+    }
+
+    public EncounterTable(String name, double rate, List<Entry> entries) {
+        this.name = name;
+        this.rate = rate;
+        TimeOfDay[] times = TimeOfDay.values();
+        entriesByTime = new Entry[times.length][];
+        samplersByTime = new AliasTable[times.length];
+        for (TimeOfDay time : times) {
+            List<Entry> active = new ArrayList<>();
+            for (Entry entry : entries) {
+                if ((entry.time == null || entry.time == time) && entry.weight > 0) active.add(entry);
+            }
+            entriesByTime[time.ordinal()] = active.toArray(new Entry[0]);
+            if (!active.isEmpty()) {
+                double[] weights = new double[active.size()];
+                for (int i = 0; i < weights.length; i++) weights[i] = active.get(i).weight;
+                samplersByTime[time.ordinal()] = new AliasTable(weights);
+            }
+        }
+    }
+
+    public static EncounterTable load(Path file) throws IOException {
+        String fileName = file.getFileName().toString();
+        String name = fileName.contains(".") ? fileName.substring(0, fileName.lastIndexOf('.')) : fileName;
+        double rate = DEFAULT_RATE;
+        List<Entry> entries = new ArrayList<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] parts = line.split(",");
+                try {
+                    if (parts[0].trim().equalsIgnoreCase("rate")) {
+                        rate = Double.parseDouble(parts[1].trim());
+                    } else if (parts.length >= 4) {
+                        TimeOfDay time = parts.length >= 5 ? TimeOfDay.valueOf(parts[4].trim().toUpperCase(Locale.ROOT)) : null;
+                        entries.add(new Entry(parts[0].trim(), Integer.parseInt(parts[1].trim()),
+                                Integer.parseInt(parts[2].trim()), Double.parseDouble(parts[3].trim()), time));
+                    } else {
+                        throw new IllegalArgumentException("campi mancanti");
+                    }
+                } catch (RuntimeException e) {
+                    System.err.println("Riga " + lineNumber + " di " + fileName + " ignorata: " + e.getMessage());
+                }
+            }
+        }
+        return new EncounterTable(name, rate, entries);
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    /**
+     * Tira il dado dell'incontro per un passo nell'erba.
+     */
+    public boolean rollEncounter(RandomGenerator rng) {
+        return rng.nextDouble() < rate;
+    }
+
+    /**
+     * Sceglie specie e livello per la fascia oraria indicata; null se la tabella in quella fascia è vuota.
+     */
+    public Encounter sample(RandomGenerator rng, TimeOfDay time) {
+        AliasTable sampler = samplersByTime[time.ordinal()];
+        if (sampler == null) return null;
+        Entry entry = entriesByTime[time.ordinal()][sampler.sample(rng)];
+        int level = entry.minLevel + rng.nextInt(entry.maxLevel - entry.minLevel + 1);
+        return new Encounter(entry.species, level);
+    }
+}
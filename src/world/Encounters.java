@@ -0,0 +1,71 @@
+package world;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Raccolta delle tabelle degli incontri, lette da src/assets/encounters/ e tenute in memoria.
+ * <p>
+ * La tabella di una mappa ha lo stesso nome del file TMX (FirstMap.tmx -> FirstMap.txt).
+ * Una zona d'erba con specie diverse si disegna in Tiled come oggetto di tipo "encounters"
+ * con la proprietà {@code table}: dentro la zona vale quella tabella al posto di quella della mappa.
+ * La ricerca avviene solo quando il giocatore è nell'erba, quindi i passi normali non costano nulla.
+ */
+public class Encounters {
+
+    public static final String ZONE_TYPE = "encounters";
+    private static final String DIRECTORY = "src/assets/encounters/";
+    private static final String EXTENSION = ".txt";
+
+    // Le tabelle mancanti restano registrate come vuote per non cercare il file a ogni passo
+    private static final EncounterTable MISSING = new EncounterTable("", 0, List.of());
+
+    private final Map<String, EncounterTable> tables = new ConcurrentHashMap<>();
+    private final List<MapEvent> zoneBuffer = new ArrayList<>();
+
+    /**
+     * Tabella valida nel tile indicato: quella della zona, se c'è, altrimenti quella della mappa.
+     * Restituisce null se non è definita nessuna tabella.
+     */
+    public EncounterTable forTile(String mapPath, WorldMap map, int x, int y) {
+        zoneBuffer.clear();
+        map.getEvents().queryTile(x, y, zoneBuffer);
+        for (MapEvent event : zoneBuffer) {
+            if (ZONE_TYPE.equals(event.type) && event.getProperty("table") != null) {
+                return get(event.getProperty("table"));
+            }
+        }
+        return get(mapName(mapPath));
+    }
+
+    /**
+     * Tabella con il nome indicato, letta dal disco la prima volta; null se il file non esiste.
+     */
+    public EncounterTable get(String name) {
+        EncounterTable table = tables.computeIfAbsent(name, Encounters::load);
+        return table == MISSING ? null : table;
+    }
+
+    private static EncounterTable load(String name) {
+        Path file = Path.of(DIRECTORY + name + EXTENSION);
+        if (!Files.exists(file)) return MISSING;
+        try {
+            return EncounterTable.load(file);
+        } catch (IOException e) {
+            System.err.println("Errore nel caricare la tabella degli incontri " + name + ": " + e.getMessage());
+            return MISSING;
+        }
+    }
+
+    private static String mapName(String mapPath) {
+        String name = new File(mapPath).getName();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+}
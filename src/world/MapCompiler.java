@@ -0,0 +1,373 @@
+package world;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * "Compilatore" offline delle mappe: trasforma TMX + TSX nel formato binario letto da {@link CompiledMap}.
+ * Il TMX resta il formato di lavoro in Tiled; il binario serve solo a caricare la mappa in fretta.
+ * <p>
+ * Uso da riga di comando: {@code java world.MapCompiler mappa.tmx [uscita.pkmap]}
+ * <p>
+ * Struttura del file (big-endian, sezioni allineate a 8 byte):
+ * <pre>
+ * header      magic, versione, larghezza, altezza, dimensioni tile, numero di layer,
+ *             attributi e gid, offset di ogni sezione
+ * layer       nome, larghezza, altezza, offset dei dati e flag (visibile, sopra il giocatore)
+ *             di ogni layer, in ordine di disegno
+ * tile        array piatti di gid (int), riga per riga
+ * collisioni  bitset di long, un bit per tile (1 = bloccato)
+ * attributi   nomi delle proprietà booleane dei tile + un short di flag per gid
+ * oggetti     object group con forme, punti e proprietà
+ * dipendenze  file sorgente (TMX, TSX) con la data di modifica usata per invalidare la cache
+ * </pre>
+ */
+public final class MapCompiler {
+
+    public static final String EXTENSION = ".pkmap";
+
+    private MapCompiler() {
+        // Classe utility: costruttore privato per evitare istanziazione
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Uso: java world.MapCompiler mappa.tmx [uscita" + EXTENSION + "]");
+            System.exit(1);
+        }
+        File tmxFile = new File(args[0]);
+        Path out = args.length > 1 ? Path.of(args[1]) : defaultOutput(tmxFile);
+        compile(tmxFile, out);
+        System.out.println("Mappa compilata: " + out + " (" + Files.size(out) + " byte)");
+    }
+
+    /**
+     * Percorso del file compilato accanto al TMX (FirstMap.tmx -> FirstMap.pkmap).
+     */
+    public static Path defaultOutput(File tmxFile) {
+        String name = tmxFile.getName();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        return new File(tmxFile.getAbsoluteFile().getParentFile(), base + EXTENSION).toPath();
+    }
+
+    /**
+     * Compila il TMX nel formato binario leggendolo due volte in streaming: la prima senza gid
+     * ({@link MapLoader#scan}) per dimensioni, collisioni, attributi e oggetti, la seconda
+     * ({@link MapLoader#streamTiles}) per copiare i gid nel file un chunk alla volta.
+     * I layer non vengono mai ricomposti in memoria e gli offset sono long, quindi anche
+     * le mappe infinite più grandi di 2 GB si compilano con poca memoria.
+     * <p>
+     * Il file viene prima scritto in un file temporaneo e poi spostato, così un altro processo
+     * non legge mai un file a metà.
+     */
+    public static void compile(File tmxFile, Path out) throws IOException {
+        MapData data = MapLoader.scan(tmxFile);
+
+        ByteArrayOutputStream tableBytes = new ByteArrayOutputStream();
+        DataOutputStream table = new DataOutputStream(tableBytes);
+        long[] layerOffsets = new long[data.getLayers().size()];
+        long tileDataLength = 0;
+        for (int i = 0; i < layerOffsets.length; i++) {
+            MapData.TileLayer layer = data.getLayers().get(i);
+            layerOffsets[i] = tileDataLength;
+            table.writeUTF(layer.name);
+            table.writeInt(layer.width);
+            table.writeInt(layer.height);
+            table.writeLong(tileDataLength);
+            table.writeByte((layer.isVisible() ? CompiledMap.LAYER_VISIBLE : 0)
+                    | (layer.isAbovePlayer() ? CompiledMap.LAYER_ABOVE_PLAYER : 0));
+            tileDataLength += (long) layer.width * layer.height * Integer.BYTES;
+        }
+
+        List<String> attributeNames = collectBooleanProperties(data);
+        int gidCount = gidCount(data);
+        // Sezione dei gid: null perché viene scritta a parte, in streaming
+        byte[][] sections = {tableBytes.toByteArray(), null, writeCollision(data),
+                writeAttributes(data, attributeNames, gidCount), writeObjects(data), writeDependencies(data, tmxFile)};
+        long[] offsets = new long[sections.length];
+        long position = align(CompiledMap.HEADER_SIZE);
+        for (int i = 0; i < sections.length; i++) {
+            offsets[i] = position;
+            position = align(position + (sections[i] != null ? sections[i].length : tileDataLength));
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(CompiledMap.HEADER_SIZE);
+        header.putInt(CompiledMap.MAGIC).putInt(CompiledMap.VERSION)
+                .putInt(data.width).putInt(data.height).putInt(data.tileWidth).putInt(data.tileHeight)
+                .putInt(data.originX).putInt(data.originY)
+                .putInt(data.getLayers().size()).putInt(attributeNames.size()).putInt(gidCount);
+        for (long offset : offsets) {
+            header.putLong(offset);
+        }
+
+        Path dir = out.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = dir.resolve(out.getFileName() + "." + ProcessHandle.current().pid() + ".tmp");
+        try {
+            try (FileChannel file = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                writeFully(file, header.flip(), 0);
+                for (int i = 0; i < sections.length; i++) {
+                    if (sections[i] != null) {
+                        writeFully(file, ByteBuffer.wrap(sections[i]), offsets[i]);
+                    }
+                }
+                // I byte oltre la fine del file non sono garantiti a zero: si azzera la sezione prima di riempirla
+                fillZero(file, offsets[1], tileDataLength);
+                TileWriter tiles = new TileWriter(file, data, offsets[1], layerOffsets);
+                MapLoader.streamTiles(tmxFile, tiles);
+                tiles.flush();
+            }
+            try {
+                Files.move(tmp, out, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, out, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Copia nel file i gid che arrivano dal TMX. I chunk di una mappa infinita possono arrivare in
+     * qualsiasi ordine, ma Tiled li scrive riga per riga: si tiene in memoria una fascia di
+     * {@link #BAND_ROWS} righe del layer corrente, che si rilegge dal file quando serve e si
+     * riscrive quando si passa a un'altra fascia.
+     */
+    private static final class TileWriter implements MapLoader.TileSink {
+        private static final int BAND_ROWS = 16; // Come i chunk di Tiled
+
+        private final FileChannel file;
+        private final MapData data;
+        private final long tileDataOffset;
+        private final long[] layerOffsets;
+        private ByteBuffer band = ByteBuffer.allocate(0);
+        private int bandLayer = -1;
+        private int bandY;
+        private int bandRows;
+        private int bandWidth;
+
+        TileWriter(FileChannel file, MapData data, long tileDataOffset, long[] layerOffsets) {
+            this.file = file;
+            this.data = data;
+            this.tileDataOffset = tileDataOffset;
+            this.layerOffsets = layerOffsets;
+        }
+
+        @Override
+        public void tiles(int layer, int x, int y, int width, int height, int[] gids) throws IOException {
+            MapData.TileLayer target = data.getLayers().get(layer);
+            // Le mappe infinite sono ricomposte a partire dall'origine; per le altre l'origine è 0,0
+            int startX = x - data.originX;
+            int startY = y - data.originY;
+            int fromCol = Math.max(0, -startX);
+            int toCol = Math.min(width, target.width - startX);
+            for (int row = 0; row < height; row++) {
+                int mapY = startY + row;
+                if (mapY < 0 || mapY >= target.height || fromCol >= toCol) continue;
+                if (layer != bandLayer || mapY < bandY || mapY >= bandY + bandRows) {
+                    load(layer, mapY - mapY % BAND_ROWS);
+                }
+                IntBuffer ints = band.asIntBuffer();
+                ints.put((mapY - bandY) * bandWidth + startX + fromCol, gids, row * width + fromCol, toCol - fromCol);
+            }
+        }
+
+        private void load(int layer, int y) throws IOException {
+            flush();
+            MapData.TileLayer target = data.getLayers().get(layer);
+            bandLayer = layer;
+            bandY = y;
+            bandRows = Math.min(BAND_ROWS, target.height - y);
+            bandWidth = target.width;
+            int length = bandRows * bandWidth * Integer.BYTES;
+            if (band.capacity() < length) {
+                band = ByteBuffer.allocate(length);
+            }
+            band.clear().limit(length);
+            long position = bandPosition();
+            while (band.hasRemaining()) {
+                if (file.read(band, position + band.position()) < 0) {
+                    throw new IOException("File compilato troncato");
+                }
+            }
+            band.flip();
+        }
+
+        void flush() throws IOException {
+            if (bandLayer < 0) return;
+            writeFully(file, band.duplicate(), bandPosition());
+            bandLayer = -1;
+        }
+
+        private long bandPosition() {
+            return tileDataOffset + layerOffsets[bandLayer] + (long) bandY * bandWidth * Integer.BYTES;
+        }
+    }
+
+    private static byte[] writeCollision(MapData data) throws IOException {
+        long[] bits = CollisionMap.build(data).getBits();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(bits.length * 8);
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (long word : bits) {
+            out.writeLong(word);
+        }
+        return bytes.toByteArray();
+    }
+
+    // Nomi (ordinati) di tutte le proprietà booleane usate dai tile
+    static List<String> collectBooleanProperties(MapData data) {
+        TreeSet<String> names = new TreeSet<>();
+        for (MapData.Tileset tileset : data.getTilesets()) {
+            for (Map<String, String> props : tileset.getTileProperties().values()) {
+                for (Map.Entry<String, String> prop : props.entrySet()) {
+                    if ("true".equals(prop.getValue()) || "false".equals(prop.getValue())) {
+                        names.add(prop.getKey());
+                    }
+                }
+            }
+        }
+        List<String> result = new ArrayList<>(names);
+        if (result.size() > Short.SIZE) {
+            System.err.println("Troppe proprietà booleane nei tileset, vengono tenute solo le prime " + Short.SIZE);
+            result = result.subList(0, Short.SIZE);
+        }
+        return result;
+    }
+
+    static int gidCount(MapData data) {
+        int count = 1;
+        for (MapData.Tileset tileset : data.getTilesets()) {
+            count = Math.max(count, tileset.firstGid + tileset.tileCount);
+            for (int localId : tileset.getTileProperties().keySet()) {
+                count = Math.max(count, tileset.firstGid + localId + 1);
+            }
+        }
+        return count;
+    }
+
+    private static byte[] writeAttributes(MapData data, List<String> names, int gidCount) throws IOException {
+        short[] flags = new short[gidCount];
+        for (MapData.Tileset tileset : data.getTilesets()) {
+            for (Map.Entry<Integer, Map<String, String>> tile : tileset.getTileProperties().entrySet()) {
+                int gid = tileset.firstGid + tile.getKey();
+                for (int bit = 0; bit < names.size(); bit++) {
+                    if ("true".equals(tile.getValue().get(names.get(bit)))) {
+                        flags[gid] |= (short) (1 << bit);
+                    }
+                }
+            }
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (String name : names) {
+            out.writeUTF(name);
+        }
+        pad(out, align(out.size()));
+        for (short flag : flags) {
+            out.writeShort(flag);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] writeObjects(MapData data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(data.getObjectGroups().size());
+        for (MapData.ObjectGroup group : data.getObjectGroups()) {
+            out.writeInt(group.id);
+            writeString(out, group.name);
+            writeProperties(out, group.getProperties());
+            out.writeInt(group.getObjects().size());
+            for (MapData.MapObject obj : group.getObjects()) {
+                out.writeInt(obj.id);
+                writeString(out, obj.name);
+                writeString(out, obj.type);
+                out.writeFloat(obj.x);
+                out.writeFloat(obj.y);
+                out.writeFloat(obj.width);
+                out.writeFloat(obj.height);
+                out.writeByte(obj.getShape().ordinal());
+                float[] points = obj.getPoints();
+                out.writeInt(points != null ? points.length : 0);
+                if (points != null) {
+                    for (float p : points) out.writeFloat(p);
+                }
+                writeProperties(out, obj.getProperties());
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] writeDependencies(MapData data, File tmxFile) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        List<String> sources = new ArrayList<>();
+        sources.add(tmxFile.getName());
+        for (MapData.Tileset tileset : data.getTilesets()) {
+            if (tileset.getSource() != null) sources.add(tileset.getSource());
+        }
+        File baseDir = tmxFile.getAbsoluteFile().getParentFile();
+        out.writeInt(sources.size());
+        for (String source : sources) {
+            out.writeUTF(source);
+            out.writeLong(new File(baseDir, source).lastModified());
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeProperties(DataOutputStream out, Map<String, String> properties) throws IOException {
+        out.writeInt(properties.size());
+        for (Map.Entry<String, String> prop : properties.entrySet()) {
+            writeString(out, prop.getKey());
+            writeString(out, prop.getValue());
+        }
+    }
+
+    // writeUTF non accetta null: usiamo un flag davanti alla stringa
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeUTF(value);
+    }
+
+    private static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+
+    private static void writeFully(FileChannel file, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += file.write(buffer, position);
+        }
+    }
+
+    private static void fillZero(FileChannel file, long position, long length) throws IOException {
+        ByteBuffer zeros = ByteBuffer.allocate((int) Math.min(length, 1 << 16));
+        for (long end = position + length; position < end; ) {
+            zeros.clear().limit((int) Math.min(zeros.capacity(), end - position));
+            writeFully(file, zeros, position);
+            position += zeros.limit();
+        }
+    }
+
+    private static void pad(DataOutputStream out, long target) throws IOException {
+        while (out.size() < target) {
+            out.writeByte(0);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package world;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Contenuto di una mappa TMX letto da {@link MapLoader} in un solo passaggio:
+ * layer di tile, gruppi di oggetti, tileset con le proprietà dei tile e proprietà della mappa.
+ * È un semplice contenitore di dati, non contiene logica di gioco.
+ */
+public class MapData {
+
+    // I 4 bit alti di un gid indicano i flip del tile in Tiled: li togliamo per avere l'id puro
+    public static final int GID_MASK = 0x0FFFFFFF;
+
+    public final int width;       // Larghezza in tile
+    public final int height;      // Altezza in tile
+    public final int tileWidth;
+    public final int tileHeight;
+    public final boolean infinite;
+    // Coordinate (in tile) della cella 0,0 nella mappa Tiled: diverse da zero solo per le mappe infinite
+    public final int originX;
+    public final int originY;
+
+    final List<TileLayer> layers = new ArrayList<>();
+    final List<ObjectGroup> objectGroups = new ArrayList<>();
+    final List<Tileset> tilesets = new ArrayList<>();
+    final Map<String, String> properties = new HashMap<>();
+
+    public MapData(int width, int height, int tileWidth, int tileHeight, boolean infinite) {
+        this(width, height, tileWidth, tileHeight, infinite, 0, 0);
+    }
+
+    public MapData(int width, int height, int tileWidth, int tileHeight, boolean infinite, int originX, int originY) {
+        this.width = width;
+        this.height = height;
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+        this.infinite = infinite;
+        this.originX = originX;
+        this.originY = originY;
+    }
+
+    public List<TileLayer> getLayers() {
+        return Collections.unmodifiableList(layers);
+    }
+
+    public TileLayer getLayer(String name) {
+        for (TileLayer layer : layers) {
+            if (layer.name.equals(name)) return layer;
+        }
+        return null;
+    }
+
+    public List<ObjectGroup> getObjectGroups() {
+        return Collections.unmodifiableList(objectGroups);
+    }
+
+    public ObjectGroup getObjectGroup(String name) {
+        for (ObjectGroup group : objectGroups) {
+            if (group.name.equals(name)) return group;
+        }
+        return null;
+    }
+
+    public List<Tileset> getTilesets() {
+        return Collections.unmodifiableList(tilesets);
+    }
+
+    public Map<String, String> getProperties() {
+        return properties;
+    }
+
+    /**
+     * Layer di tile: gli id (gid) sono salvati in un array piatto riga per riga.
+     * L'ordine dei layer nella mappa è l'ordine di disegno; i layer con la proprietà
+     * booleana "abovePlayer" (tetti, chiome degli alberi...) vengono disegnati sopra il giocatore.
+     */
+    public static class TileLayer {
+        public static final String ABOVE_PLAYER = "abovePlayer";
+
+        public final int id;
+        public final String name;
+        public final int width;
+        public final int height;
+        public final int[] data;
+        boolean visible = true;
+        final Map<String, String> properties = new HashMap<>();
+
+        public TileLayer(int id, String name, int width, int height) {
+            this(id, name, width, height, new int[width * height]);
+        }
+
+        private TileLayer(int id, String name, int width, int height, int[] data) {
+            this.id = id;
+            this.name = name;
+            this.width = width;
+            this.height = height;
+            this.data = data;
+        }
+
+        /**
+         * Layer senza gid (data vuoto): solo nome, dimensioni e proprietà, come lo legge
+         * {@link MapLoader#scan}. I gid arrivano a parte con {@link MapLoader#streamTiles}.
+         */
+        static TileLayer header(int id, String name, int width, int height) {
+            return new TileLayer(id, name, width, height, new int[0]);
+        }
+
+        public int getGid(int x, int y) {
+            if (x < 0 || x >= width || y < 0 || y >= height || data.length == 0) return 0;
+            return data[y * width + x];
+        }
+
+        public boolean isVisible() {
+            return visible;
+        }
+
+        public boolean isAbovePlayer() {
+            return "true".equals(properties.get(ABOVE_PLAYER));
+        }
+
+        public Map<String, String> getProperties() {
+            return properties;
+        }
+    }
+
+    /**
+     * Gruppo di oggetti (collisioni, warp, eventi...).
+     */
+    public static class ObjectGroup {
+        public final int id;
+        public final String name;
+        final List<MapObject> objects = new ArrayList<>();
+        final Map<String, String> properties = new HashMap<>();
+
+        public ObjectGroup(int id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        public List<MapObject> getObjects() {
+            return Collections.unmodifiableList(objects);
+        }
+
+        public Map<String, String> getProperties() {
+            return properties;
+        }
+    }
+
+    public enum Shape {
+        RECTANGLE, POINT, ELLIPSE, POLYGON, POLYLINE
+    }
+
+    /**
+     * Oggetto di un ObjectGroup. Coordinate in pixel della mappa; per poligoni e polilinee
+     * i punti sono relativi a (x, y) e salvati come coppie x0, y0, x1, y1...
+     */
+    public static class MapObject {
+        public final int id;
+        public final String name;
+        public final String type;
+        public final float x, y, width, height;
+        Shape shape = Shape.RECTANGLE;
+        float[] points;
+        final Map<String, String> properties = new HashMap<>();
+
+        public MapObject(int id, String name, String type, float x, float y, float width, float height) {
+            this.id = id;
+            this.name = name;
+            this.type = type;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+
+        public Shape getShape() {
+            return shape;
+        }
+
+        public float[] getPoints() {
+            return points;
+        }
+
+        public Map<String, String> getProperties() {
+            return properties;
+        }
+    }
+
+    /**
+     * Tileset usato dalla mappa, con le proprietà dei singoli tile (indicizzate per id locale).
+     */
+    public static class Tileset {
+        public final int firstGid;
+        public final String name;
+        public final int tileCount;
+        public final int columns;
+        String source;      // Percorso del file TSX (relativo alla mappa), null se incorporato
+        String imageSource;
+        final Map<Integer, Map<String, String>> tileProperties = new HashMap<>();
+
+        public Tileset(int firstGid, String name, int tileCount, int columns) {
+            this.firstGid = firstGid;
+            this.name = name;
+            this.tileCount = tileCount;
+            this.columns = columns;
+        }
+
+        public String getSource() {
+            return source;
+        }
+
+        public String getImageSource() {
+            return imageSource;
+        }
+
+        public Map<Integer, Map<String, String>> getTileProperties() {
+            return tileProperties;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package world;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Evento della mappa (warp, trigger, cartelli...) letto da un oggetto di Tiled,
+ * con posizione e dimensioni già convertite in tile.
+ * Il tipo è il "type"/"class" dell'oggetto; i dati specifici stanno nelle proprietà.
+ */
+public class MapEvent {
+
+    public final int id;
+    public final String name;
+    public final String type;
+    public final String group; // Nome dell'object group di provenienza
+    public final int x;
+    public final int y;
+    public final int width;
+    public final int height;
+    private final Map<String, String> properties;
+
+    public MapEvent(int id, String name, String type, String group, int x, int y, int width, int height,
+                    Map<String, String> properties) {
+        this.id = id;
+        this.name = name;
+        this.type = type;
+        this.group = group;
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        this.properties = Collections.unmodifiableMap(properties);
+    }
+
+    /**
+     * Converte un oggetto Tiled: il rettangolo copre tutti i tile toccati, un punto occupa il suo tile.
+     */
+    static MapEvent fromObject(MapData.MapObject obj, String group, int tileWidth, int tileHeight, int originX, int originY) {
+        int startX = (int) Math.floor(obj.x / tileWidth);
+        int startY = (int) Math.floor(obj.y / tileHeight);
+        int endX = Math.max(startX + 1, (int) Math.ceil((obj.x + obj.width) / tileWidth));
+        int endY = Math.max(startY + 1, (int) Math.ceil((obj.y + obj.height) / tileHeight));
+        return new MapEvent(obj.id, obj.name, obj.type, group, startX - originX, startY - originY,
+                endX - startX, endY - startY, obj.getProperties());
+    }
+
+    public String getProperty(String key) {
+        return properties.get(key);
+    }
+
+    public Map<String, String> getProperties() {
+        return properties;
+    }
+
+    public boolean contains(int tileX, int tileY) {
+        return tileX >= x && tileX < x + width && tileY >= y && tileY < y + height;
+    }
+}
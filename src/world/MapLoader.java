@@ -1,120 +1,540 @@
 package world;
 
-import org.w3c.dom.*;
-import javax.xml.parsers.DocumentBuilderFactory;
-
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileReader;
-import java.util.HashSet;
-import java.util.Set;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
+/**
+ * Caricatore delle mappe Tiled (TMX) e dei tileset (TSX).
+ * Il file viene letto una sola volta in streaming con StAX: niente DOM in memoria
+ * e nessuna regex per cella. I layer possono essere in CSV, XML o base64 (anche zlib/gzip).
+ * Le mappe infinite (dati divisi in elementi &lt;chunk&gt;) vengono ricomposte in una griglia
+ * che copre il rettangolo usato, con l'origine salvata in {@link MapData#originX}/{@link MapData#originY}.
+ * <p>
+ * Per le mappe grandi non serve avere i layer in memoria: {@link #scan} legge tutto tranne i gid
+ * e {@link #streamTiles} li passa a un {@link TileSink} un chunk alla volta, così il compilatore
+ * scrive il file binario senza mai ricomporre i layer interi.
+ */
 public class MapLoader {
 
-    public static int[][] loadTMXLayer(String tmxPath, String layerName, int width, int height) {
-        int[][] layer = new int[height][width];
+    private static final XMLInputFactory XML_FACTORY = createFactory();
+
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        // Le mappe non usano DTD né entità esterne: le disattiviamo per sicurezza
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        return factory;
+    }
+
+    // Cosa fare dei gid durante la lettura
+    private enum Mode {
+        DENSE,  // Layer completi in memoria
+        HEADER, // Nessun gid: solo dimensioni, origine, tileset e oggetti
+        STREAM  // Gid passati a un TileSink un blocco alla volta
+    }
+
+    /**
+     * Riceve i gid dei layer mentre vengono decodificati, un rettangolo alla volta:
+     * un &lt;chunk&gt; per le mappe infinite, il layer intero per le altre.
+     */
+    @FunctionalInterface
+    public interface TileSink {
+        /**
+         * @param layer indice del layer nella mappa
+         * @param x colonna del primo tile in coordinate Tiled (per le mappe infinite va tolta l'origine)
+         * @param y riga del primo tile, come x
+         * @param gids i gid riga per riga; l'array viene riusato dopo la chiamata
+         */
+        void tiles(int layer, int x, int y, int width, int height, int[] gids) throws IOException;
+    }
+
+    /**
+     * Legge una mappa TMX con tutti i layer, gli object group e i tileset referenziati.
+     * @param tmxPath percorso del file .tmx
+     */
+    public static MapData load(String tmxPath) {
         try {
-            BufferedReader reader = new BufferedReader(new FileReader(tmxPath));
-            String line;
-            boolean readingLayer = false;
-            int y = 0;
-
-            while ((line = reader.readLine()) != null) {
-                if (line.contains("<layer") && line.contains("name=\"" + layerName + "\"")) {
-                    readingLayer = true;
-                } else if (readingLayer && line.contains("<data")) {
-                    while ((line = reader.readLine()) != null && y < height) {
-                        if (line.contains("</data>")) break;
-                        String[] values = line.trim().split(",");
-                        for (int x = 0; x < width && x < values.length; x++) {
-                            String value = values[x].replaceAll("[^0-9]", "");
-                            if (!value.isEmpty()) {
-                                layer[y][x] = Integer.parseInt(value);
+            return read(new File(tmxPath), Mode.DENSE, null);
+        } catch (IOException e) {
+            throw new RuntimeException("Impossibile caricare la mappa: " + tmxPath, e);
+        }
+    }
+
+    /**
+     * Legge la mappa senza i gid: i layer hanno solo nome, dimensioni e proprietà. Per le mappe
+     * infinite il rettangolo usato si ricava dagli attributi dei chunk, senza decodificarli,
+     * quindi la memoria non dipende dalla dimensione della mappa.
+     */
+    public static MapData scan(File tmxFile) throws IOException {
+        return read(tmxFile, Mode.HEADER, null);
+    }
+
+    /**
+     * Decodifica i gid di tutti i layer e li passa al sink: in memoria c'è un solo chunk alla volta
+     * (o un solo layer, per le mappe non infinite).
+     */
+    public static void streamTiles(File tmxFile, TileSink sink) throws IOException {
+        read(tmxFile, Mode.STREAM, sink);
+    }
+
+    private static MapData read(File tmxFile, Mode mode, TileSink sink) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(tmxFile))) {
+            XMLStreamReader reader = XML_FACTORY.createXMLStreamReader(in);
+            try {
+                return parseMap(reader, tmxFile.getParentFile(), mode, sink);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("TMX non valido: " + tmxFile, e);
+        }
+    }
+
+    private static MapData parseMap(XMLStreamReader reader, File baseDir, Mode mode, TileSink sink)
+            throws XMLStreamException, IOException {
+        MapData map = null;
+        // Proprietà dell'elemento più interno che ne può avere (mappa, layer, oggetto, tile...)
+        Deque<Map<String, String>> owners = new ArrayDeque<>();
+
+        MapData.TileLayer layer = null;
+        int layerIndex = -1;
+        // Solo mappe infinite lette per intero: i chunk di ogni layer, ricomposti alla fine
+        Map<MapData.TileLayer, List<RawChunk>> layerChunks = new LinkedHashMap<>();
+        // Solo mappe infinite: rettangolo coperto dai chunk di tutti i layer
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        int[] target = null; // Array in cui finiscono i gid del <data> o <chunk> corrente (null: si saltano)
+        int[] scratch = new int[0]; // Riusato in STREAM per tutti i blocchi
+        int regionX = 0, regionY = 0, regionWidth = 0, regionHeight = 0;
+        MapData.ObjectGroup group = null;
+        MapData.MapObject object = null;
+        MapData.Tileset embeddedTileset = null;
+        boolean inTilesetTile = false; // Dentro un <tile> di un tileset incorporato
+        int skipped = 0; // Profondità dentro un sottoalbero ignorato (collisioni dei tile)
+
+        boolean inData = false;
+        String encoding = null;
+        String compression = null;
+        CsvDecoder csv = null;
+        StringBuilder base64 = null;
+        int xmlTileIndex = 0;
+
+        while (reader.hasNext()) {
+            int event = reader.next();
+
+            if (skipped > 0) {
+                if (event == XMLStreamConstants.START_ELEMENT) skipped++;
+                else if (event == XMLStreamConstants.END_ELEMENT) skipped--;
+                continue;
+            }
+
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                switch (reader.getLocalName()) {
+                    case "map" -> {
+                        map = new MapData(intAttr(reader, "width", 0), intAttr(reader, "height", 0),
+                                intAttr(reader, "tilewidth", 32), intAttr(reader, "tileheight", 32),
+                                "1".equals(reader.getAttributeValue(null, "infinite")));
+                        owners.push(map.properties);
+                    }
+                    case "tileset" -> {
+                        owners.push(new HashMap<>()); // Proprietà del tileset ignorate, non vanno alla mappa
+                        int firstGid = intAttr(reader, "firstgid", 1);
+                        String source = reader.getAttributeValue(null, "source");
+                        if (source != null) {
+                            MapData.Tileset tileset = loadTileset(new File(baseDir, source), firstGid);
+                            tileset.source = source;
+                            map.tilesets.add(tileset);
+                        } else {
+                            embeddedTileset = newTileset(reader, firstGid);
+                        }
+                    }
+                    case "image" -> {
+                        if (embeddedTileset != null && !inTilesetTile) {
+                            embeddedTileset.imageSource = reader.getAttributeValue(null, "source");
+                        }
+                    }
+                    case "tile" -> {
+                        if (inData) {
+                            // Codifica XML (deprecata in Tiled): un elemento <tile gid=".."/> per cella
+                            if (target != null && xmlTileIndex < regionWidth * regionHeight) {
+                                target[xmlTileIndex] = intAttr(reader, "gid", 0) & MapData.GID_MASK;
                             }
+                            xmlTileIndex++;
+                        } else if (embeddedTileset != null) {
+                            inTilesetTile = true;
+                            owners.push(embeddedTileset.tileProperties.computeIfAbsent(intAttr(reader, "id", 0), k -> new HashMap<>()));
                         }
-                        y++;
                     }
-                    break;
+                    case "layer" -> {
+                        int id = intAttr(reader, "id", 0);
+                        String name = reader.getAttributeValue(null, "name");
+                        int width = map.infinite ? 0 : intAttr(reader, "width", map.width);
+                        int height = map.infinite ? 0 : intAttr(reader, "height", map.height);
+                        layer = mode == Mode.DENSE ? new MapData.TileLayer(id, name, width, height)
+                                : MapData.TileLayer.header(id, name, width, height);
+                        layerIndex++;
+                        if (map.infinite && mode == Mode.DENSE) {
+                            layerChunks.put(layer, new ArrayList<>());
+                        }
+                        layer.visible = !"0".equals(reader.getAttributeValue(null, "visible"));
+                        map.layers.add(layer);
+                        owners.push(layer.properties);
+                    }
+                    case "data" -> {
+                        inData = true;
+                        encoding = reader.getAttributeValue(null, "encoding");
+                        compression = reader.getAttributeValue(null, "compression");
+                        if (!map.infinite) {
+                            regionX = 0;
+                            regionY = 0;
+                            regionWidth = layer.width;
+                            regionHeight = layer.height;
+                            target = switch (mode) {
+                                case DENSE -> layer.data;
+                                case STREAM -> scratch = clearedScratch(scratch, regionWidth * regionHeight);
+                                case HEADER -> null;
+                            };
+                            xmlTileIndex = 0;
+                            csv = target != null && "csv".equals(encoding) ? new CsvDecoder(target, regionWidth * regionHeight) : null;
+                            base64 = target != null && "base64".equals(encoding) ? new StringBuilder() : null;
+                        }
+                    }
+                    case "chunk" -> {
+                        regionX = intAttr(reader, "x", 0);
+                        regionY = intAttr(reader, "y", 0);
+                        regionWidth = intAttr(reader, "width", 16);
+                        regionHeight = intAttr(reader, "height", 16);
+                        minX = Math.min(minX, regionX);
+                        minY = Math.min(minY, regionY);
+                        maxX = Math.max(maxX, regionX + regionWidth);
+                        maxY = Math.max(maxY, regionY + regionHeight);
+                        target = switch (mode) {
+                            case DENSE -> {
+                                RawChunk chunk = new RawChunk(regionX, regionY, regionWidth, regionHeight);
+                                layerChunks.get(layer).add(chunk);
+                                yield chunk.data;
+                            }
+                            case STREAM -> scratch = clearedScratch(scratch, regionWidth * regionHeight);
+                            case HEADER -> null;
+                        };
+                        xmlTileIndex = 0;
+                        csv = target != null && "csv".equals(encoding) ? new CsvDecoder(target, regionWidth * regionHeight) : null;
+                        base64 = target != null && "base64".equals(encoding) ? new StringBuilder() : null;
+                    }
+                    case "objectgroup" -> {
+                        if (embeddedTileset != null) {
+                            // Forme di collisione disegnate sul singolo tile: non sono oggetti della mappa
+                            skipped = 1;
+                            continue;
+                        }
+                        group = new MapData.ObjectGroup(intAttr(reader, "id", 0), reader.getAttributeValue(null, "name"));
+                        map.objectGroups.add(group);
+                        owners.push(group.properties);
+                    }
+                    case "object" -> {
+                        String type = reader.getAttributeValue(null, "type");
+                        if (type == null) type = reader.getAttributeValue(null, "class");
+                        object = new MapData.MapObject(intAttr(reader, "id", 0), reader.getAttributeValue(null, "name"), type,
+                                floatAttr(reader, "x"), floatAttr(reader, "y"),
+                                floatAttr(reader, "width"), floatAttr(reader, "height"));
+                        group.objects.add(object);
+                        owners.push(object.properties);
+                    }
+                    case "point" -> object.shape = MapData.Shape.POINT;
+                    case "ellipse" -> object.shape = MapData.Shape.ELLIPSE;
+                    case "polygon", "polyline" -> {
+                        object.shape = "polygon".equals(reader.getLocalName()) ? MapData.Shape.POLYGON : MapData.Shape.POLYLINE;
+                        object.points = parsePoints(reader.getAttributeValue(null, "points"));
+                    }
+                    case "group", "imagelayer" -> owners.push(new HashMap<>()); // Proprietà ignorate
+                    case "property" -> {
+                        if (!owners.isEmpty()) {
+                            owners.peek().put(reader.getAttributeValue(null, "name"), reader.getAttributeValue(null, "value"));
+                        }
+                    }
+                    default -> { }
+                }
+            } else if (inData && (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA)) {
+                if (csv != null) {
+                    csv.feed(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                } else if (base64 != null) {
+                    base64.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                switch (reader.getLocalName()) {
+                    case "data", "chunk" -> {
+                        if (csv != null) {
+                            csv.finish();
+                        } else if (base64 != null) {
+                            decodeBase64(base64, compression, target, regionWidth * regionHeight);
+                        }
+                        if (mode == Mode.STREAM && target != null) {
+                            sink.tiles(layerIndex, regionX, regionY, regionWidth, regionHeight, target);
+                        }
+                        csv = null;
+                        base64 = null;
+                        target = null;
+                        if ("data".equals(reader.getLocalName())) inData = false;
+                    }
+                    case "layer" -> {
+                        layer = null;
+                        owners.pop();
+                    }
+                    case "objectgroup" -> {
+                        group = null;
+                        owners.pop();
+                    }
+                    case "object" -> {
+                        object = null;
+                        owners.pop();
+                    }
+                    case "tile" -> {
+                        if (!inData && embeddedTileset != null) {
+                            inTilesetTile = false;
+                            owners.pop();
+                        }
+                    }
+                    case "tileset" -> {
+                        if (embeddedTileset != null) {
+                            map.tilesets.add(embeddedTileset);
+                            embeddedTileset = null;
+                        }
+                        owners.pop();
+                    }
+                    case "map", "group", "imagelayer" -> owners.pop();
+                    default -> { }
                 }
             }
-
-            reader.close();
-        } catch (Exception e) {
-            e.printStackTrace();
         }
 
-        return layer;
+        if (map == null) {
+            throw new IOException("Elemento <map> mancante");
+        }
+        if (!map.infinite || mode == Mode.STREAM) {
+            return map;
+        }
+        if (minX > maxX) {
+            minX = minY = maxX = maxY = 0; // Mappa infinita ma vuota
+        }
+        return assembleChunks(map, mode == Mode.DENSE ? layerChunks : null, minX, minY, maxX - minX, maxY - minY);
     }
 
-        public static Set<Integer> loadGrassTiles(String tsxPath) {
-        Set<Integer> grassTileIds = new HashSet<>();
+    // Array di lavoro grande almeno quanto serve, azzerato nella parte usata
+    private static int[] clearedScratch(int[] scratch, int length) {
+        if (scratch.length < length) {
+            return new int[length];
+        }
+        Arrays.fill(scratch, 0, length, 0);
+        return scratch;
+    }
 
-        try {
-            Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new File(tsxPath));
-            NodeList tiles = doc.getElementsByTagName("tile");
+    // Chunk di una mappa infinita così come appare nel TMX (coordinate in tile)
+    private static final class RawChunk {
+        final int x, y, width, height;
+        final int[] data;
 
-            for (int i = 0; i < tiles.getLength(); i++) {
-                Element tile = (Element) tiles.item(i);
-                int tileId = Integer.parseInt(tile.getAttribute("id"));
+        RawChunk(int x, int y, int width, int height) {
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+            this.data = new int[width * height];
+        }
+    }
 
-                NodeList propertiesList = tile.getElementsByTagName("property");
-                for (int j = 0; j < propertiesList.getLength(); j++) {
-                    Element prop = (Element) propertiesList.item(j);
-                    String name = prop.getAttribute("name");
-                    String type = prop.getAttribute("type");
-                    String value = prop.getAttribute("value");
+    /**
+     * Ricompone i chunk di una mappa infinita in layer piatti che coprono il rettangolo usato.
+     * Senza chunk ({@code layerChunks} null) i layer restano senza gid, con le sole dimensioni.
+     */
+    private static MapData assembleChunks(MapData map, Map<MapData.TileLayer, List<RawChunk>> layerChunks,
+                                          int minX, int minY, int width, int height) {
+        MapData result = new MapData(width, height, map.tileWidth, map.tileHeight, true, minX, minY);
+        result.properties.putAll(map.properties);
+        result.tilesets.addAll(map.tilesets);
+        result.objectGroups.addAll(map.objectGroups);
 
-                    if ("isGrass".equals(name) && "bool".equals(type) && "true".equals(value)) {
-                        grassTileIds.add(tileId);
-                    }
+        for (MapData.TileLayer source : map.layers) {
+            MapData.TileLayer layer = layerChunks != null ? new MapData.TileLayer(source.id, source.name, width, height)
+                    : MapData.TileLayer.header(source.id, source.name, width, height);
+            layer.properties.putAll(source.properties);
+            layer.visible = source.visible;
+            result.layers.add(layer);
+            if (layerChunks == null) continue;
+            for (RawChunk c : layerChunks.get(source)) {
+                for (int row = 0; row < c.height; row++) {
+                    System.arraycopy(c.data, row * c.width, layer.data, (c.y - minY + row) * width + (c.x - minX), c.width);
                 }
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
-
-        return grassTileIds;
+        return result;
     }
 
-    public static boolean[][] loadCollisionMap(String tmxPath, int width, int height) {
-        boolean[][] collisionMap = new boolean[height][width];
-        try {
-            Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new File(tmxPath));
-            NodeList objectGroups = doc.getElementsByTagName("objectgroup");
-
-            for (int i = 0; i < objectGroups.getLength(); i++) {
-                Element group = (Element) objectGroups.item(i);
-                if (!"Collision".equals(group.getAttribute("name"))) continue;
-
-                NodeList objects = group.getElementsByTagName("object");
-                for (int j = 0; j < objects.getLength(); j++) {
-                    Element obj = (Element) objects.item(j);
-
-                    float x = Float.parseFloat(obj.getAttribute("x"));
-                    float y = Float.parseFloat(obj.getAttribute("y"));
-                    float w = obj.hasAttribute("width") ? Float.parseFloat(obj.getAttribute("width")) : 0;
-                    float h = obj.hasAttribute("height") ? Float.parseFloat(obj.getAttribute("height")) : 0;
-
-                    int startX = (int)(x / 32);
-                    int startY = (int)(y / 32);
-                    int endX = (int)((x + w) / 32);
-                    int endY = (int)((y + h) / 32);
-
-                    for (int yy = startY; yy <= endY && yy < height; yy++) {
-                        for (int xx = startX; xx <= endX && xx < width; xx++) {
-                            if (xx >= 0 && yy >= 0) {
-                                collisionMap[yy][xx] = true;
+    /**
+     * Legge un tileset esterno (TSX): immagine e proprietà dei tile.
+     */
+    public static MapData.Tileset loadTileset(File tsxFile, int firstGid) throws IOException, XMLStreamException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(tsxFile))) {
+            XMLStreamReader reader = XML_FACTORY.createXMLStreamReader(in);
+            try {
+                MapData.Tileset tileset = null;
+                Map<String, String> tileProps = null;
+                // Profondità dell'elemento corrente: <tileset> = 1, <tile> = 2, <tile><properties> = 3.
+                // Solo le <property> figlie dirette di <tile><properties> sono del tile; quelle
+                // degli oggetti di collisione dentro il tile stanno più in basso.
+                int depth = 0;
+                boolean inTileProperties = false;
+
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.END_ELEMENT) {
+                        if (depth == 2 && "tile".equals(reader.getLocalName())) tileProps = null;
+                        if (depth == 3) inTileProperties = false;
+                        depth--;
+                        continue;
+                    }
+                    if (event != XMLStreamConstants.START_ELEMENT) continue;
+                    depth++;
+                    switch (reader.getLocalName()) {
+                        case "tileset" -> {
+                            if (depth == 1) tileset = newTileset(reader, firstGid);
+                        }
+                        case "image" -> {
+                            if (depth == 2) tileset.imageSource = reader.getAttributeValue(null, "source");
+                        }
+                        case "tile" -> {
+                            if (depth == 2) {
+                                tileProps = tileset.tileProperties.computeIfAbsent(intAttr(reader, "id", 0), k -> new HashMap<>());
+                            }
+                        }
+                        case "properties" -> inTileProperties = depth == 3 && tileProps != null;
+                        case "property" -> {
+                            if (inTileProperties && depth == 4) {
+                                tileProps.put(reader.getAttributeValue(null, "name"), reader.getAttributeValue(null, "value"));
                             }
                         }
+                        default -> { }
                     }
                 }
+
+                if (tileset == null) {
+                    throw new IOException("Elemento <tileset> mancante in " + tsxFile);
+                }
+                return tileset;
+            } finally {
+                reader.close();
             }
+        }
+    }
+
+    private static MapData.Tileset newTileset(XMLStreamReader reader, int firstGid) {
+        return new MapData.Tileset(firstGid, reader.getAttributeValue(null, "name"),
+                intAttr(reader, "tilecount", 0), intAttr(reader, "columns", 0));
+    }
+
+    private static void decodeBase64(CharSequence text, String compression, int[] target, int length) throws IOException {
+        byte[] bytes = Base64.getMimeDecoder().decode(text.toString().trim());
+        if (compression != null && !compression.isEmpty()) {
+            InputStream in = switch (compression) {
+                case "zlib" -> new InflaterInputStream(new ByteArrayInputStream(bytes));
+                case "gzip" -> new GZIPInputStream(new ByteArrayInputStream(bytes));
+                default -> throw new IOException("Compressione non supportata: " + compression);
+            };
+            try (in) {
+                bytes = in.readAllBytes();
+            }
+        }
+        IntBuffer gids = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        int count = Math.min(length, gids.remaining());
+        for (int i = 0; i < count; i++) {
+            target[i] = gids.get(i) & MapData.GID_MASK;
+        }
+    }
+
+    private static float[] parsePoints(String points) {
+        if (points == null || points.isBlank()) return new float[0];
+        String[] pairs = points.trim().split(" ");
+        float[] result = new float[pairs.length * 2];
+        for (int i = 0; i < pairs.length; i++) {
+            int comma = pairs[i].indexOf(',');
+            result[i * 2] = Float.parseFloat(pairs[i].substring(0, comma));
+            result[i * 2 + 1] = Float.parseFloat(pairs[i].substring(comma + 1));
+        }
+        return result;
+    }
 
+    private static int intAttr(XMLStreamReader reader, String name, int defaultValue) {
+        String value = reader.getAttributeValue(null, name);
+        return value != null ? (int) Long.parseLong(value) : defaultValue;
+    }
+
+    private static float floatAttr(XMLStreamReader reader, String name) {
+        String value = reader.getAttributeValue(null, name);
+        return value != null ? Float.parseFloat(value) : 0f;
+    }
+
+    /**
+     * Decodifica incrementale dei dati CSV: i numeri vengono costruiti carattere per carattere
+     * mentre arrivano gli eventi di testo, senza creare stringhe per cella.
+     */
+    private static final class CsvDecoder {
+        private final int[] target;
+        private final int length;
+        private int index = 0;
+        private long value = 0;
+        private boolean hasDigits = false;
+
+        CsvDecoder(int[] target, int length) {
+            this.target = target;
+            this.length = length;
+        }
 
-        } catch (Exception e) {
-            e.printStackTrace();
+        void feed(char[] chars, int start, int length) {
+            for (int i = start; i < start + length; i++) {
+                char c = chars[i];
+                if (c >= '0' && c <= '9') {
+                    value = value * 10 + (c - '0');
+                    hasDigits = true;
+                } else if (c == ',') {
+                    store();
+                }
+            }
+        }
+
+        void finish() {
+            if (hasDigits) store();
         }
 
-        return collisionMap;
+        private void store() {
+            if (index < length) {
+                target[index] = (int) value & MapData.GID_MASK;
+            }
+            index++;
+            value = 0;
+            hasDigits = false;
+        }
     }
 }
@@ -0,0 +1,352 @@
+package world;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Ricerca di percorsi A* sulla griglia delle collisioni, per gli NPC e i movimenti scriptati.
+ * <p>
+ * Il movimento è in 4 direzioni con costo 1, come quello del giocatore. Un percorso è un int[]
+ * di celle impacchettate ({@code y * width + x}) dalla prima cella dopo la partenza fino all'arrivo;
+ * {@link #NO_PATH} se l'arrivo non è raggiungibile, {@link #ARRIVED} se la partenza è già l'arrivo.
+ * Sono entrambi vuoti ma distinti: vanno confrontati con {@code ==}.
+ * <p>
+ * Per non creare garbage durante la ricerca, ogni thread ha una sua tabella hash delle celle
+ * visitate (costi, padri, heap), riusata da una ricerca all'altra: invece di azzerarla si usa un
+ * contatore di "generazione". La tabella cresce con le celle visitate, non con la mappa, ed è
+ * limitata da {@link #MAX_EXPANSIONS}. I risultati restano in una cache LRU finché la griglia non cambia.
+ * Le richieste asincrone vanno a un pool di worker e quelle identiche già in corso vengono unite,
+ * purché partite con la stessa versione della griglia.
+ */
+public class Pathfinder {
+
+    public static final int[] NO_PATH = new int[0];
+    public static final int[] ARRIVED = new int[0]; // Nessun passo da fare: si è già sull'arrivo
+
+    private static final int MAX_CACHED_PATHS = 1024;
+    // Limite ai nodi esplorati: evita di visitare tutta la mappa per un arrivo irraggiungibile
+    private static final int MAX_EXPANSIONS = 1 << 18;
+    private static final int[] DX = {1, -1, 0, 0};
+    private static final int[] DY = {0, 0, 1, -1};
+
+    public final int width;
+    public final int height;
+
+    // Griglia di navigazione (1 = bloccato), modificata sul posto. Una ricerca che incrocia una modifica
+    // può leggere un misto delle due griglie: il suo risultato non va in cache e non viene più condiviso
+    private final AtomicLongArray grid;
+    private volatile int gridVersion = 0;
+
+    private final Map<Long, int[]> cache = new LinkedHashMap<>(64, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, int[]> eldest) {
+            return size() > MAX_CACHED_PATHS;
+        }
+    };
+    private final ConcurrentHashMap<Long, Request> inFlight = new ConcurrentHashMap<>();
+    private final ThreadLocal<SearchBuffers> buffers;
+    private final ExecutorService workers;
+
+    public Pathfinder(CollisionMap collision, int workerCount) {
+        this.width = collision.width;
+        this.height = collision.height;
+        this.grid = new AtomicLongArray(collision.getBits());
+        this.buffers = ThreadLocal.withInitial(SearchBuffers::new);
+
+        AtomicInteger threadId = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerCount, r -> {
+            Thread t = new Thread(r, "Pathfinder-" + threadId.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Cambia lo stato di una cella (porte, massi spostati...) e invalida i percorsi in cache.
+     */
+    public synchronized void setBlocked(int x, int y, boolean blocked) {
+        if (x < 0 || x >= width || y < 0 || y >= height) return;
+        int i = y * width + x;
+        long bit = 1L << (i & 63);
+        long word = grid.get(i >>> 6);
+        long updated = blocked ? word | bit : word & ~bit;
+        if (updated == word) return;
+        grid.set(i >>> 6, updated);
+        gridVersion++;
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    public boolean isBlocked(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) return true;
+        return isBlocked(y * width + x);
+    }
+
+    /**
+     * Calcola il percorso sul thread chiamante (o lo prende dalla cache).
+     */
+    public int[] findPath(int startX, int startY, int goalX, int goalY) {
+        // La partenza può essere bloccata (un NPC fermo su una cella non calpestabile), l'arrivo no
+        if (isOutside(startX, startY) || isBlocked(goalX, goalY)) {
+            return NO_PATH;
+        }
+        long key = key(startY * width + startX, goalY * width + goalX);
+        int[] cached;
+        synchronized (cache) {
+            cached = cache.get(key);
+        }
+        if (cached != null) return cached;
+
+        int version = gridVersion;
+        int[] path = search(startX, startY, goalX, goalY);
+        synchronized (cache) {
+            if (version == gridVersion) cache.put(key, path);
+        }
+        return path;
+    }
+
+    /**
+     * Accoda la richiesta ai worker. Se la stessa richiesta è già in corso sulla griglia attuale si
+     * ottiene lo stesso future; una richiesta partita prima di un {@link #setBlocked} non viene più
+     * condivisa e ne parte una nuova.
+     * Il future viene completato su un thread del pool: chi lo usa nel gioco deve leggerne il
+     * risultato nell'update (ad esempio con getNow) invece di toccare lo stato nel callback.
+     */
+    public CompletableFuture<int[]> requestPath(int startX, int startY, int goalX, int goalY) {
+        if (isOutside(startX, startY) || isOutside(goalX, goalY)) {
+            return CompletableFuture.completedFuture(NO_PATH);
+        }
+        long key = key(startY * width + startX, goalY * width + goalX);
+        synchronized (cache) {
+            int[] cached = cache.get(key);
+            if (cached != null) return CompletableFuture.completedFuture(cached);
+        }
+        int version = gridVersion;
+        while (true) {
+            Request running = inFlight.get(key);
+            if (running != null) {
+                if (running.version == version && !running.future.isDone()) return running.future;
+                inFlight.remove(key, running); // Concluso o calcolato su una griglia vecchia
+                continue;
+            }
+            Request request = new Request(version, new CompletableFuture<>());
+            if (inFlight.putIfAbsent(key, request) != null) continue;
+            // La pulizia si aggancia solo dopo l'inserimento: se il future è già concluso parte subito
+            request.future.whenComplete((path, error) -> inFlight.remove(key, request));
+            try {
+                workers.execute(() -> {
+                    try {
+                        request.future.complete(findPath(startX, startY, goalX, goalY));
+                    } catch (RuntimeException | Error e) {
+                        request.future.completeExceptionally(e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                request.future.completeExceptionally(e); // Pool già chiuso
+            }
+            return request.future;
+        }
+    }
+
+    private record Request(int version, CompletableFuture<int[]> future) {
+    }
+
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private int[] search(int startX, int startY, int goalX, int goalY) {
+        int start = startY * width + startX;
+        int goal = goalY * width + goalX;
+        if (start == goal) return ARRIVED;
+
+        SearchBuffers b = buffers.get();
+        b.reset();
+
+        b.open(start, 0, -1, heuristic(startX, startY, goalX, goalY));
+        int expansions = 0;
+        while (b.heapSize > 0 && expansions < MAX_EXPANSIONS) {
+            int current = b.pop();
+            int slot = b.find(current);
+            if (b.closed[slot]) continue; // Voce vecchia: la cella è già stata chiusa
+            if (current == goal) return buildPath(b, start, goal);
+            b.closed[slot] = true;
+            expansions++;
+
+            int cx = current % width;
+            int cy = current / width;
+            int nextCost = b.cost[slot] + 1;
+            for (int dir = 0; dir < 4; dir++) {
+                int nx = cx + DX[dir];
+                int ny = cy + DY[dir];
+                if (nx < 0 || nx >= width || ny < 0 || ny >= height) continue;
+                int next = ny * width + nx;
+                if (isBlocked(next)) continue;
+                int nextSlot = b.find(next);
+                if (nextSlot >= 0 && (b.closed[nextSlot] || nextCost >= b.cost[nextSlot])) continue;
+                b.open(next, nextCost, current, nextCost + heuristic(nx, ny, goalX, goalY));
+            }
+        }
+        return NO_PATH;
+    }
+
+    private int[] buildPath(SearchBuffers b, int start, int goal) {
+        int length = 0;
+        for (int node = goal; node != start; node = b.parent[b.find(node)]) {
+            length++;
+        }
+        int[] path = new int[length];
+        int i = length;
+        for (int node = goal; node != start; node = b.parent[b.find(node)]) {
+            path[--i] = node;
+        }
+        return path;
+    }
+
+    private static int heuristic(int x, int y, int goalX, int goalY) {
+        return Math.abs(x - goalX) + Math.abs(y - goalY);
+    }
+
+    private boolean isBlocked(int i) {
+        return (grid.get(i >>> 6) & (1L << (i & 63))) != 0;
+    }
+
+    private boolean isOutside(int x, int y) {
+        return x < 0 || x >= width || y < 0 || y >= height;
+    }
+
+    private static long key(int start, int goal) {
+        return ((long) start << 32) | (goal & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Dati di lavoro di un thread: una tabella hash a indirizzamento aperto dalle celle visitate
+     * a costo, padre e flag di chiusura. Una voce è valida solo se il suo timbro è uguale alla
+     * generazione della ricerca corrente: così non serve mai azzerarla.
+     */
+    private static final class SearchBuffers {
+        private static final int INITIAL_CAPACITY = 1 << 10;
+
+        int[] cells = new int[INITIAL_CAPACITY];
+        int[] stamps = new int[INITIAL_CAPACITY];
+        int[] cost = new int[INITIAL_CAPACITY];
+        int[] parent = new int[INITIAL_CAPACITY];
+        boolean[] closed = new boolean[INITIAL_CAPACITY];
+        private int size;
+        // Heap binario di celle ordinato per priorità (f = g + h), salvata accanto alla cella.
+        // Una cella può comparire più volte: le copie vecchie vengono saltate quando escono (la cella è già chiusa).
+        int[] heap = new int[256];
+        int[] heapPriority = new int[256];
+        int heapSize;
+        private int generation = 0;
+
+        void reset() {
+            if (++generation == Integer.MAX_VALUE) {
+                // Dopo 2 miliardi di ricerche i timbri vecchi potrebbero tornare validi: ripartiamo da zero
+                Arrays.fill(stamps, 0);
+                generation = 1;
+            }
+            size = 0;
+            heapSize = 0;
+        }
+
+        // Indice della voce della cella, -1 se non è ancora stata vista in questa ricerca
+        int find(int cell) {
+            int mask = cells.length - 1;
+            for (int i = hash(cell) & mask; stamps[i] == generation; i = (i + 1) & mask) {
+                if (cells[i] == cell) return i;
+            }
+            return -1;
+        }
+
+        void open(int node, int g, int from, int f) {
+            int slot = find(node);
+            if (slot < 0) {
+                if (2 * (size + 1) > cells.length) grow();
+                slot = hash(node) & (cells.length - 1);
+                while (stamps[slot] == generation) slot = (slot + 1) & (cells.length - 1);
+                stamps[slot] = generation;
+                cells[slot] = node;
+                closed[slot] = false;
+                size++;
+            }
+            cost[slot] = g;
+            parent[slot] = from;
+            push(node, f);
+        }
+
+        // Raddoppia la tabella reinserendo le voci della ricerca corrente
+        private void grow() {
+            int[] oldCells = cells, oldStamps = stamps, oldCost = cost, oldParent = parent;
+            boolean[] oldClosed = closed;
+            int capacity = oldCells.length * 2;
+            cells = new int[capacity];
+            stamps = new int[capacity];
+            cost = new int[capacity];
+            parent = new int[capacity];
+            closed = new boolean[capacity];
+            for (int i = 0; i < oldCells.length; i++) {
+                if (oldStamps[i] != generation) continue;
+                int slot = hash(oldCells[i]) & (capacity - 1);
+                while (stamps[slot] == generation) slot = (slot + 1) & (capacity - 1);
+                stamps[slot] = generation;
+                cells[slot] = oldCells[i];
+                cost[slot] = oldCost[i];
+                parent[slot] = oldParent[i];
+                closed[slot] = oldClosed[i];
+            }
+        }
+
+        private static int hash(int cell) {
+            int h = cell * 0x9E3779B9; // Celle vicine finiscono lontane nella tabella
+            return h ^ (h >>> 16);
+        }
+
+        private void push(int node, int f) {
+            if (heapSize == heap.length) {
+                heap = Arrays.copyOf(heap, heapSize * 2);
+                heapPriority = Arrays.copyOf(heapPriority, heapSize * 2);
+            }
+            int i = heapSize++;
+            while (i > 0) {
+                int up = (i - 1) >>> 1;
+                if (heapPriority[up] <= f) break;
+                heap[i] = heap[up];
+                heapPriority[i] = heapPriority[up];
+                i = up;
+            }
+            heap[i] = node;
+            heapPriority[i] = f;
+        }
+
+        int pop() {
+            int top = heap[0];
+            int last = heap[--heapSize];
+            int f = heapPriority[heapSize];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= heapSize) break;
+                if (child + 1 < heapSize && heapPriority[child + 1] < heapPriority[child]) child++;
+                if (heapPriority[child] >= f) break;
+                heap[i] = heap[child];
+                heapPriority[i] = heapPriority[child];
+                i = child;
+            }
+            heap[i] = last;
+            heapPriority[i] = f;
+            return top;
+        }
+    }
+}
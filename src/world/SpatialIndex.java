@@ -0,0 +1,214 @@
+package world;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Indice spaziale a griglia per gli elementi posizionati sui tile (NPC, oggetti, eventi della mappa).
+ * <p>
+ * La mappa è divisa in celle di 8x8 tile; ogni cella tiene una lista concatenata delle sue voci,
+ * salvata in array paralleli. Ogni voce ha un handle intero restituito da {@link #insert},
+ * da usare per spostarla o toglierla. Le query aggiungono i risultati a una lista passata
+ * dal chiamante (che può riusarla), quindi non allocano nulla.
+ * <p>
+ * Non è thread-safe: va usato dal thread di gioco.
+ */
+public class SpatialIndex<T> {
+
+    private static final int CELL_SHIFT = 3; // Celle da 8x8 tile
+    private static final int NONE = -1;
+
+    private final int cols;
+    private final int rows;
+    private final int[] cellHead;
+
+    // Voci, indicizzate per handle. Le voci libere sono concatenate tramite next a partire da freeHead
+    private Object[] items = new Object[16];
+    private int[] itemX = new int[16];
+    private int[] itemY = new int[16];
+    private int[] itemCell = new int[16];
+    private int[] next = new int[16];
+    private int[] prev = new int[16];
+    private int freeHead = NONE;
+    private int used = 0;
+    private int size = 0;
+
+    public SpatialIndex(int width, int height) {
+        this.cols = Math.max(1, (width + (1 << CELL_SHIFT) - 1) >> CELL_SHIFT);
+        this.rows = Math.max(1, (height + (1 << CELL_SHIFT) - 1) >> CELL_SHIFT);
+        this.cellHead = new int[cols * rows];
+        Arrays.fill(cellHead, NONE);
+    }
+
+    /**
+     * Aggiunge un elemento nel tile indicato e restituisce il suo handle.
+     */
+    public int insert(T item, int x, int y) {
+        int handle;
+        if (freeHead != NONE) {
+            handle = freeHead;
+            freeHead = next[handle];
+        } else {
+            if (used == items.length) grow();
+            handle = used++;
+        }
+        items[handle] = item;
+        itemX[handle] = x;
+        itemY[handle] = y;
+        link(handle, cellOf(x, y));
+        size++;
+        return handle;
+    }
+
+    public void move(int handle, int x, int y) {
+        itemX[handle] = x;
+        itemY[handle] = y;
+        int cell = cellOf(x, y);
+        if (cell != itemCell[handle]) {
+            unlink(handle);
+            link(handle, cell);
+        }
+    }
+
+    public void remove(int handle) {
+        if (items[handle] == null) return;
+        unlink(handle);
+        items[handle] = null;
+        next[handle] = freeHead;
+        freeHead = handle;
+        size--;
+    }
+
+    /**
+     * Toglie tutte le voci.
+     */
+    public void clear() {
+        Arrays.fill(cellHead, NONE);
+        Arrays.fill(items, 0, used, null);
+        used = 0;
+        size = 0;
+        freeHead = NONE;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int handle) {
+        return (T) items[handle];
+    }
+
+    public int getX(int handle) {
+        return itemX[handle];
+    }
+
+    public int getY(int handle) {
+        return itemY[handle];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Primo elemento nel tile, oppure null.
+     */
+    @SuppressWarnings("unchecked")
+    public T first(int x, int y) {
+        for (int h = cellHead[cellOf(x, y)]; h != NONE; h = next[h]) {
+            if (itemX[h] == x && itemY[h] == y) return (T) items[h];
+        }
+        return null;
+    }
+
+    public boolean isOccupied(int x, int y) {
+        return first(x, y) != null;
+    }
+
+    /**
+     * Aggiunge a {@code out} gli elementi nel tile; restituisce quanti ne ha trovati.
+     */
+    public int queryTile(int x, int y, List<? super T> out) {
+        return queryRect(x, y, 1, 1, out);
+    }
+
+    /**
+     * Aggiunge a {@code out} gli elementi nel rettangolo di tile (x, y, w, h).
+     */
+    @SuppressWarnings("unchecked")
+    public int queryRect(int x, int y, int w, int h, List<? super T> out) {
+        int found = 0;
+        int maxX = x + w - 1;
+        int maxY = y + h - 1;
+        for (int row = cellRow(y); row <= cellRow(maxY); row++) {
+            for (int col = cellColumn(x); col <= cellColumn(maxX); col++) {
+                for (int e = cellHead[row * cols + col]; e != NONE; e = next[e]) {
+                    if (itemX[e] >= x && itemX[e] <= maxX && itemY[e] >= y && itemY[e] <= maxY) {
+                        out.add((T) items[e]);
+                        found++;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Aggiunge a {@code out} gli elementi entro {@code radius} tile (distanza euclidea) dal tile indicato.
+     */
+    @SuppressWarnings("unchecked")
+    public int queryRadius(int centerX, int centerY, int radius, List<? super T> out) {
+        int found = 0;
+        int radiusSq = radius * radius;
+        for (int row = cellRow(centerY - radius); row <= cellRow(centerY + radius); row++) {
+            for (int col = cellColumn(centerX - radius); col <= cellColumn(centerX + radius); col++) {
+                for (int e = cellHead[row * cols + col]; e != NONE; e = next[e]) {
+                    int dx = itemX[e] - centerX;
+                    int dy = itemY[e] - centerY;
+                    if (dx * dx + dy * dy <= radiusSq) {
+                        out.add((T) items[e]);
+                        found++;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    // Le posizioni fuori dalla mappa finiscono nelle celle di bordo
+    private int cellColumn(int x) {
+        return Math.max(0, Math.min(cols - 1, x >> CELL_SHIFT));
+    }
+
+    private int cellRow(int y) {
+        return Math.max(0, Math.min(rows - 1, y >> CELL_SHIFT));
+    }
+
+    private int cellOf(int x, int y) {
+        return cellRow(y) * cols + cellColumn(x);
+    }
+
+    private void link(int handle, int cell) {
+        itemCell[handle] = cell;
+        prev[handle] = NONE;
+        next[handle] = cellHead[cell];
+        if (cellHead[cell] != NONE) prev[cellHead[cell]] = handle;
+        cellHead[cell] = handle;
+    }
+
+    private void unlink(int handle) {
+        if (prev[handle] != NONE) {
+            next[prev[handle]] = next[handle];
+        } else {
+            cellHead[itemCell[handle]] = next[handle];
+        }
+        if (next[handle] != NONE) prev[next[handle]] = prev[handle];
+    }
+
+    private void grow() {
+        int capacity = items.length * 2;
+        items = Arrays.copyOf(items, capacity);
+        itemX = Arrays.copyOf(itemX, capacity);
+        itemY = Arrays.copyOf(itemY, capacity);
+        itemCell = Arrays.copyOf(itemCell, capacity);
+        next = Arrays.copyOf(next, capacity);
+        prev = Arrays.copyOf(prev, capacity);
+    }
+}
@@ -0,0 +1,54 @@
+package world;
+
+/**
+ * Tabella degli attributi dei tile: per ogni gid un short di flag, un bit per ogni proprietà
+ * booleana definita nei tileset (isGrass, isWater, ...).
+ * I nomi non sono scritti nel codice: una nuova proprietà aggiunta in Tiled diventa subito
+ * un nuovo bit, e il gioco ne ricava la maschera con {@link #mask(String)}.
+ * <p>
+ * Le query per tile sono un accesso a un array, senza boxing: vanno bene anche a ogni passo.
+ */
+public final class TileAttributes {
+
+    private final String[] names;
+    private final short[] flags;
+
+    private TileAttributes(String[] names, short[] flags) {
+        this.names = names;
+        this.flags = flags;
+    }
+
+    /**
+     * Copia la tabella dalla mappa compilata in un array sul heap (più veloce da leggere del buffer mappato).
+     */
+    public static TileAttributes from(CompiledMap map) {
+        short[] flags = new short[map.getGidCount()];
+        for (int gid = 0; gid < flags.length; gid++) {
+            flags[gid] = (short) map.getTileFlags(gid);
+        }
+        return new TileAttributes(map.getAttributeNames(), flags);
+    }
+
+    /**
+     * Maschera della proprietà indicata, oppure 0 se nessun tile la usa
+     * (così {@link #has(int, int)} restituisce semplicemente false).
+     */
+    public int mask(String name) {
+        for (int bit = 0; bit < names.length; bit++) {
+            if (names[bit].equals(name)) return 1 << bit;
+        }
+        return 0;
+    }
+
+    public int getFlags(int gid) {
+        return gid >= 0 && gid < flags.length ? flags[gid] & 0xFFFF : 0;
+    }
+
+    public boolean has(int gid, int mask) {
+        return (getFlags(gid) & mask) != 0;
+    }
+
+    public String[] getNames() {
+        return names.clone();
+    }
+}
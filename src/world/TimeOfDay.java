@@ -0,0 +1,20 @@
+package world;
+
+import java.time.LocalTime;
+
+/**
+ * Fasce orarie usate dalle tabelle degli incontri, come nei giochi originali.
+ * L'ora viene dall'orologio del gioco ({@code engine.GameClock}), non da quello di sistema.
+ */
+public enum TimeOfDay {
+    MORNING, // 4:00 - 9:59
+    DAY,     // 10:00 - 19:59
+    NIGHT;   // 20:00 - 3:59
+
+    public static TimeOfDay at(LocalTime time) {
+        int hour = time.getHour();
+        if (hour >= 4 && hour < 10) return MORNING;
+        if (hour >= 10 && hour < 20) return DAY;
+        return NIGHT;
+    }
+}
@@ -0,0 +1,77 @@
+package world;
+
+/**
+ * Blocco di SIZE x SIZE tile del mondo: i gid di ogni layer, le collisioni a bit e i flag
+ * degli attributi di ogni cella (unione di quelli dei tile di tutti i layer), così una query
+ * per tile come "è erba?" è un solo accesso a un array.
+ * È l'unità che {@link ChunkedWorld} carica in background e scarta quando il giocatore si allontana.
+ */
+public class WorldChunk {
+
+    public static final int SIZE = 16; // Stessa dimensione dei chunk delle mappe infinite di Tiled
+    public static final int SHIFT = 4; // log2(SIZE), per passare da tile a chunk con uno shift
+    public static final int MASK = SIZE - 1;
+
+    public final int chunkX;
+    public final int chunkY;
+    final int[][] layers;       // [layer][riga * SIZE + colonna]
+    final long[] collision = new long[SIZE * SIZE / Long.SIZE];
+    final short[] flags = new short[SIZE * SIZE]; // Attributi della cella, ricalcolati a ogni setTile
+    volatile boolean modified = false; // I chunk modificati in gioco non vengono scartati
+    volatile boolean evicted = false;  // Tolto dal ChunkedWorld: chi lo tiene in cache deve rileggerlo
+
+    public WorldChunk(int chunkX, int chunkY, int layerCount) {
+        this.chunkX = chunkX;
+        this.chunkY = chunkY;
+        this.layers = new int[layerCount][SIZE * SIZE];
+    }
+
+    public int getTile(int layer, int localX, int localY) {
+        return layers[layer][(localY << SHIFT) | localX];
+    }
+
+    public void setTile(int layer, int localX, int localY, int gid) {
+        layers[layer][(localY << SHIFT) | localX] = gid;
+        modified = true;
+    }
+
+    public int getFlags(int localX, int localY) {
+        return flags[(localY << SHIFT) | localX] & 0xFFFF;
+    }
+
+    // Ricalcola i flag della cella dai gid di tutti i layer
+    void updateFlags(int localX, int localY, ChunkSource source) {
+        int i = (localY << SHIFT) | localX;
+        int cell = 0;
+        for (int[] layer : layers) {
+            cell |= source.getTileFlags(layer[i]);
+        }
+        flags[i] = (short) cell;
+    }
+
+    void updateFlags(ChunkSource source) {
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                updateFlags(x, y, source);
+            }
+        }
+    }
+
+    public boolean isBlocked(int localX, int localY) {
+        int i = (localY << SHIFT) | localX;
+        return (collision[i >>> 6] & (1L << (i & 63))) != 0;
+    }
+
+    void setBlocked(int localX, int localY, boolean blocked) {
+        int i = (localY << SHIFT) | localX;
+        if (blocked) {
+            collision[i >>> 6] |= 1L << (i & 63);
+        } else {
+            collision[i >>> 6] &= ~(1L << (i & 63));
+        }
+    }
+
+    static long key(int chunkX, int chunkY) {
+        return ((long) chunkX << 32) | (chunkY & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,198 @@
+package world;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Gestisce le mappe del mondo e il passaggio dall'una all'altra tramite i warp.
+ * <p>
+ * Un warp è un oggetto di Tiled di tipo "warp" con le proprietà {@code map} (percorso del TMX
+ * di arrivo, relativo alla mappa corrente), {@code targetX} e {@code targetY} (tile di arrivo).
+ * Quando il giocatore si avvicina a un warp, la mappa di arrivo viene caricata in background
+ * insieme ai chunk attorno al punto di arrivo, così il cambio mappa non ha pause. Se il caricamento
+ * non è ancora finito quando si attraversa il warp, il gioco non si ferma ad aspettarlo:
+ * {@link #beginWarp} avvia il passaggio e {@link #pollWarp} lo completa in un update successivo.
+ * Restano in memoria solo la mappa corrente e quelle raggiungibili dai suoi warp.
+ */
+public class WorldManager {
+
+    public static final String WARP_TYPE = "warp";
+    private static final int PREFETCH_RADIUS = 6; // Tile dal warp entro cui si inizia a caricare la mappa
+
+    private final Map<String, CompletableFuture<WorldMap>> maps = new ConcurrentHashMap<>();
+    private final ExecutorService prefetcher;
+    private final List<MapEvent> nearbyEvents = new ArrayList<>(); // Riusata a ogni passo
+
+    private volatile String currentPath;
+    private volatile WorldMap currentMap; // Letta anche dal thread di Swing per disegnare il mondo
+    // Warp attraversato la cui mappa di arrivo si sta ancora caricando
+    private MapEvent pendingWarp;
+    private CompletableFuture<WorldMap> pendingMap;
+
+    public WorldManager(String startMapPath) {
+        this.prefetcher = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "MapPrefetch");
+            t.setDaemon(true);
+            return t;
+        });
+        this.currentPath = normalize(startMapPath);
+        this.currentMap = new WorldMap(currentPath);
+        maps.put(currentPath, CompletableFuture.completedFuture(currentMap));
+    }
+
+    public WorldMap getCurrentMap() {
+        return currentMap;
+    }
+
+    public String getCurrentPath() {
+        return currentPath;
+    }
+
+    /**
+     * Da chiamare quando il giocatore si sposta: avvia il caricamento delle mappe dei warp vicini.
+     */
+    public void update(int playerX, int playerY) {
+        nearbyEvents.clear();
+        currentMap.getEvents().queryRadius(playerX, playerY, PREFETCH_RADIUS, nearbyEvents);
+        for (MapEvent event : nearbyEvents) {
+            if (isWarp(event)) prefetch(event);
+        }
+    }
+
+    /**
+     * Warp nel tile indicato della mappa corrente, oppure null.
+     */
+    public MapEvent findWarp(int x, int y) {
+        nearbyEvents.clear();
+        currentMap.getEvents().queryTile(x, y, nearbyEvents);
+        for (MapEvent event : nearbyEvents) {
+            if (isWarp(event)) return event;
+        }
+        return null;
+    }
+
+    /**
+     * Inizia il passaggio alla mappa di arrivo del warp. Il caricamento (se il prefetch non l'ha
+     * già fatto) continua in background: la mappa corrente non cambia finché {@link #pollWarp} non
+     * la restituisce.
+     */
+    public void beginWarp(MapEvent warp) {
+        pendingWarp = warp;
+        pendingMap = prefetch(warp);
+    }
+
+    public boolean isWarping() {
+        return pendingWarp != null;
+    }
+
+    /**
+     * Da chiamare a ogni update durante un warp. Restituisce la nuova mappa corrente appena è pronta,
+     * null se il caricamento è ancora in corso. Se la mappa non si può caricare o il punto di arrivo
+     * è fuori dalla mappa restituisce null, {@link #isWarping()} torna false e si resta dove si è.
+     */
+    public WorldMap pollWarp() {
+        if (pendingWarp == null || !pendingMap.isDone()) return null;
+        MapEvent warp = pendingWarp;
+        CompletableFuture<WorldMap> loading = pendingMap;
+        pendingWarp = null;
+        pendingMap = null;
+
+        String target = resolve(warp.getProperty("map"));
+        WorldMap next;
+        try {
+            next = loading.join();
+        } catch (CompletionException e) {
+            maps.remove(target, loading);
+            System.err.println("Impossibile caricare la mappa del warp: " + target + " (" + e.getCause() + ")");
+            return null;
+        }
+        int targetX = getTargetX(warp);
+        int targetY = getTargetY(warp);
+        if (targetX < 0 || targetX >= next.width || targetY < 0 || targetY >= next.height) {
+            System.err.println("Punto di arrivo del warp fuori dalla mappa " + target + ": " + targetX + "," + targetY
+                    + " (la mappa è " + next.width + "x" + next.height + ")");
+            return null;
+        }
+        currentPath = target;
+        currentMap = next;
+        next.focusOn(targetX, targetY);
+        evictUnreachable();
+        return next;
+    }
+
+    public static int getTargetX(MapEvent warp) {
+        return parseInt(warp.getProperty("targetX"));
+    }
+
+    public static int getTargetY(MapEvent warp) {
+        return parseInt(warp.getProperty("targetY"));
+    }
+
+    public void shutdown() {
+        prefetcher.shutdownNow();
+        for (CompletableFuture<WorldMap> map : maps.values()) {
+            map.thenAccept(WorldMap::close);
+        }
+    }
+
+    private CompletableFuture<WorldMap> prefetch(MapEvent warp) {
+        String target = resolve(warp.getProperty("map"));
+        int targetX = getTargetX(warp);
+        int targetY = getTargetY(warp);
+        return maps.computeIfAbsent(target, path -> CompletableFuture.supplyAsync(() -> {
+            WorldMap map = new WorldMap(path);
+            map.focusOn(targetX, targetY); // Carica subito i chunk attorno al punto di arrivo
+            return map;
+        }, prefetcher));
+    }
+
+    // Tiene la mappa corrente e quelle dei suoi warp, chiude le altre
+    private void evictUnreachable() {
+        Set<String> keep = new HashSet<>();
+        keep.add(currentPath);
+        List<MapEvent> all = new ArrayList<>();
+        currentMap.getEvents().queryRect(0, 0, currentMap.width, currentMap.height, all);
+        for (MapEvent event : all) {
+            if (isWarp(event)) keep.add(resolve(event.getProperty("map")));
+        }
+        for (Iterator<Map.Entry<String, CompletableFuture<WorldMap>>> it = maps.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, CompletableFuture<WorldMap>> entry = it.next();
+            if (!keep.contains(entry.getKey())) {
+                entry.getValue().thenAccept(WorldMap::close);
+                it.remove();
+            }
+        }
+    }
+
+    private static boolean isWarp(MapEvent event) {
+        return WARP_TYPE.equals(event.type) && event.getProperty("map") != null;
+    }
+
+    private String resolve(String relativePath) {
+        File base = new File(currentPath).getParentFile();
+        return normalize(new File(base, relativePath).getPath());
+    }
+
+    private static String normalize(String path) {
+        return new File(path).toPath().normalize().toString();
+    }
+
+    private static int parseInt(String value) {
+        if (value == null) return 0;
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
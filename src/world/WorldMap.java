@@ -1,58 +1,270 @@
 package world;
 
-import java.util.Set;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class WorldMap {
 	 public final int width; // Larghezza della mappa in tile
 	 public final int height; // Altezza della mappa in tile
 
-    public int[][] groundLayer;
-    public int[][] overlayLayer;
-    public boolean[][] collisionMap;
-    private Set<Integer> grassTileIds;
+    private final CompiledMap map;
+    // I tile vivono in chunk caricati attorno al giocatore, non in array grandi quanto la mappa
+    private final ChunkedWorld world;
+    private final String[] layerNames;
+    // Indici dei layer visibili in ordine di disegno, divisi fra sotto e sopra il giocatore
+    private final int[] layersBelowPlayer;
+    private final int[] layersAbovePlayer;
+    // Layer di base e sovrapposto delle vecchie mappe a due layer (-1 se assenti), per getGroundTile e simili
+    private final int groundLayer;
+    private final int overlayLayer;
+    private final CollisionMap collision;
+    private final TileAttributes attributes;
+    private final int grassMask; // Bit della proprietà "isGrass" dei tileset
+    // Entità (giocatore, NPC, oggetti) ed eventi della mappa indicizzati per tile
+    private final SpatialIndex<Object> entities;
+    private final SpatialIndex<MapEvent> events;
+    private Pathfinder pathfinder; // Creato solo quando qualcuno chiede un percorso
+    // Celle bloccate o liberate in gioco (y * width + x), da riapplicare al pathfinder quando viene creato
+    private final Map<Integer, Boolean> blockedChanges = new LinkedHashMap<>();
+    // Incrementato a ogni modifica dei layer grafici dal thread di gioco, letto dall'EDT dalla cache di rendering
+    private final AtomicInteger layerVersion = new AtomicInteger();
 
-    public WorldMap(int width, int height) { //Dimensioni mappa
-        this.width = width;
-        this.height = height;
+    public WorldMap(String tmxPath) {
+        // Il TMX viene compilato in binario solo se è cambiato, poi la mappa si apre in memory-mapping
+        map = CompiledMap.loadOrCompile(tmxPath);
+        this.width = map.width;
+        this.height = map.height;
+        this.world = new ChunkedWorld(map);
+        this.layerNames = map.getLayerNames();
 
-        String path = "src/assets/maps/FirstMap.tmx";
+        int below = 0, above = 0;
+        int[] belowTmp = new int[layerNames.length];
+        int[] aboveTmp = new int[layerNames.length];
+        for (int i = 0; i < layerNames.length; i++) {
+            int flags = map.getLayerFlags(i);
+            if ((flags & CompiledMap.LAYER_VISIBLE) == 0) continue;
+            if ((flags & CompiledMap.LAYER_ABOVE_PLAYER) != 0) {
+                aboveTmp[above++] = i;
+            } else {
+                belowTmp[below++] = i;
+            }
+        }
+        layersBelowPlayer = Arrays.copyOf(belowTmp, below);
+        layersAbovePlayer = Arrays.copyOf(aboveTmp, above);
+        // Prima i nomi usati da Tiled, altrimenti i primi due layer visibili sotto il giocatore
+        int ground = indexOf(layerNames, "Livello tile 1");
+        int overlay = indexOf(layerNames, "Livello tile 2");
+        groundLayer = ground >= 0 ? ground : below > 0 ? layersBelowPlayer[0] : -1;
+        overlayLayer = overlay >= 0 ? overlay : below > 1 ? layersBelowPlayer[1] : -1;
+
+        collision = CollisionMap.load(map);
+        attributes = TileAttributes.from(map);
+        entities = new SpatialIndex<>(width, height);
+        events = new SpatialIndex<>(width, height);
+        loadEvents();
+        grassMask = attributes.mask("isGrass");
+    }
 
-        groundLayer = MapLoader.loadTMXLayer(path, "Livello tile 1", width, height);
-        overlayLayer = MapLoader.loadTMXLayer(path, "Livello tile 2", width, height);
-        collisionMap = MapLoader.loadCollisionMap(path, width, height);
-        grassTileIds = MapLoader.loadGrassTiles("src/assets/maps/Tileset.tsx");
-        //grassTileIds = MapLoader.loadGrassTiles("assets/maps/Tileset.tsx");
+    // Ogni oggetto dei gruppi diversi da "Collision" diventa un evento, con una voce per ogni tile coperto
+    private void loadEvents() {
+        for (MapData.ObjectGroup group : map.readObjectGroups()) {
+            if (CollisionMap.GROUP_NAME.equals(group.name)) continue;
+            for (MapData.MapObject obj : group.getObjects()) {
+                MapEvent event = MapEvent.fromObject(obj, group.name, map.tileWidth, map.tileHeight, map.originX, map.originY);
+                for (int y = event.y; y < event.y + event.height; y++) {
+                    for (int x = event.x; x < event.x + event.width; x++) {
+                        events.insert(event, x, y);
+                    }
+                }
+            }
+        }
     }
 
-        public boolean isGrassTile(int x, int y) {
-            if (x < 0 || x >= width || y < 0 || y >= height)
-                return false;
+    /**
+     * Sposta la zona caricata attorno al tile indicato; da chiamare quando il giocatore si muove.
+     */
+    public void focusOn(int x, int y) {
+        world.focusOn(x, y);
+    }
 
-            int id = groundLayer[y][x];
-            int id2 = overlayLayer[y][x];
+    public int getLayerCount() {
+        return layerNames.length;
+    }
 
-            boolean isGrass = grassTileIds.contains(id - 1) || grassTileIds.contains(id2 - 1);
+    public String getLayerName(int layer) {
+        return layerNames[layer];
+    }
 
-            System.out.println("Tile ID: " + id + " → nel TSX: " + (id - 1) + " → isGrass: " + isGrass);
-            return isGrass;
+    // Indice del layer con quel nome, -1 se non esiste
+    public int getLayerIndex(String name) {
+        return indexOf(layerNames, name);
+    }
+
+    // Statico perché serve anche al costruttore, che non deve chiamare metodi sovrascrivibili
+    private static int indexOf(String[] names, String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) return i;
         }
+        return -1;
+    }
+
+    /**
+     * Layer visibili da disegnare prima del giocatore, nell'ordine della mappa.
+     */
+    public int[] getLayersBelowPlayer() {
+        return layersBelowPlayer.clone();
+    }
+
+    /**
+     * Layer visibili da disegnare dopo il giocatore (tetti, chiome...), nell'ordine della mappa.
+     */
+    public int[] getLayersAbovePlayer() {
+        return layersAbovePlayer.clone();
+    }
+
+    public TileAttributes getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * Flag degli attributi della cella: unione di quelli dei tile di tutti i layer, precalcolata
+     * nel chunk quando viene letto (o quando un tile cambia).
+     */
+    public int getTileFlags(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height)
+            return 0;
+        return world.getFlags(x, y);
+    }
 
+    // La maschera si ottiene una volta sola con getAttributes().mask("nomeProprietà")
+    public boolean hasAttribute(int x, int y, int mask) {
+        return (getTileFlags(x, y) & mask) != 0;
+    }
+
+    public boolean isGrassTile(int x, int y) {
+        return hasAttribute(x, y, grassMask);
+    }
+
+    /**
+     * Collisioni esatte in pixel, per le entità che non si muovono a tile interi.
+     */
+    public CollisionMap getCollision() {
+        return collision;
+    }
+
+    /**
+     * Servizio di pathfinding sulla griglia delle collisioni, creato al primo uso
+     * con le celle già cambiate da {@link #setBlocked}.
+     */
+    public synchronized Pathfinder getPathfinder() {
+        if (pathfinder == null) {
+            int workers = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+            pathfinder = new Pathfinder(collision, workers);
+            for (Map.Entry<Integer, Boolean> change : blockedChanges.entrySet()) {
+                int cell = change.getKey();
+                pathfinder.setBlocked(cell % width, cell / width, change.getValue());
+            }
+        }
+        return pathfinder;
+    }
+
+    /**
+     * Blocca o libera una cella in gioco (porte, ostacoli rimossi...): aggiorna il movimento
+     * a tile e i percorsi. Le forme esatte di {@link #getCollision()} restano quelle della mappa.
+     */
+    public void setBlocked(int x, int y, boolean blocked) {
+        if (x < 0 || x >= width || y < 0 || y >= height)
+            return;
+        world.setBlocked(x, y, blocked);
+        synchronized (this) {
+            blockedChanges.put(y * width + x, blocked);
+            if (pathfinder != null) pathfinder.setBlocked(x, y, blocked);
+        }
+    }
+
+    /**
+     * Entità presenti sulla mappa: chi si muove aggiorna la propria voce con move(handle, x, y).
+     */
+    public SpatialIndex<Object> getEntities() {
+        return entities;
+    }
+
+    /**
+     * Eventi letti dagli object group della mappa. Un evento su più tile compare una volta per tile.
+     */
+    public SpatialIndex<MapEvent> getEvents() {
+        return events;
+    }
+
+    // Il tile non è bloccato dalla mappa né occupato da un'altra entità
+    public boolean isFree(int x, int y) {
+        return isWalkable(x, y) && !entities.isOccupied(x, y);
+    }
 
     public boolean isWalkable(int x, int y) {
         if (x < 0 || x >= width || y < 0 || y >= height)
             return false;
-        return !collisionMap[y][x];
+        return !world.isBlocked(x, y);
     }
 
-    public int getGroundTile(int x, int y) {
+    /**
+     * Vero se i tile attorno a (x, y) sono già in memoria e leggerli non blocca;
+     * altrimenti ne avvia il caricamento in background. Fuori dalla mappa non c'è niente da leggere.
+     */
+    public boolean isLoaded(int x, int y) {
         if (x < 0 || x >= width || y < 0 || y >= height)
-            return -1;
-        return groundLayer[y][x];
+            return true;
+        return world.isLoaded(x, y);
     }
 
-    public int getOverlayTile(int x, int y) {
+    public int getTile(int layer, int x, int y) {
         if (x < 0 || x >= width || y < 0 || y >= height)
             return -1;
-        return overlayLayer[y][x];
+        return world.getTile(layer, x, y);
+    }
+
+    public void setTile(int layer, int x, int y, int tileId) {
+        if (x < 0 || x >= width || y < 0 || y >= height)
+            return;
+        world.setTile(layer, x, y, tileId);
+        layerVersion.incrementAndGet();
+    }
+
+    // Accessi delle mappe a due layer, rimasti per compatibilità: equivalgono a getTile/setTile sul layer
+    // di base ("Livello tile 1") e su quello sovrapposto ("Livello tile 2")
+
+    public int getGroundTile(int x, int y) {
+        return groundLayer >= 0 ? getTile(groundLayer, x, y) : 0;
+    }
+
+    public int getOverlayTile(int x, int y) {
+        return overlayLayer >= 0 ? getTile(overlayLayer, x, y) : 0;
+    }
+
+    public void setGroundTile(int x, int y, int tileId) {
+        if (groundLayer >= 0) setTile(groundLayer, x, y, tileId);
+    }
+
+    public void setOverlayTile(int x, int y, int tileId) {
+        if (overlayLayer >= 0) setTile(overlayLayer, x, y, tileId);
+    }
+
+    /**
+     * Ferma i thread della mappa (caricamento dei chunk, pathfinding) quando non serve più.
+     */
+    public void close() {
+        world.shutdown();
+        Pathfinder current;
+        synchronized (this) {
+            current = pathfinder;
+        }
+        if (current != null) current.shutdown();
+    }
+
+    // Usato dalle cache di rendering per capire se devono ricostruire le immagini
+    public int getLayerVersion() {
+        return layerVersion.get();
     }
 }